@@ -0,0 +1,41 @@
+package antiSpamFilter;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with the JMH command line options, writing the results as JSON to
+ * benchmarks/results/yyyyMMdd-HHmmss.json (unless -rf or -rff are given), so they can be compared across
+ * changes.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions options = new CommandLineOptions(args);
+		if (options.shouldHelp()) {
+			options.showHelp();
+			return;
+		}
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(options);
+		if (!options.getResultFormat().hasValue() && !options.getResult().hasValue()) {
+			File results = new File("benchmarks/results");
+			results.mkdirs();
+			String name = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".json";
+			builder.resultFormat(ResultFormatType.JSON).result(new File(results, name).getPath());
+		}
+
+		Runner runner = new Runner(builder.build());
+		if (options.shouldList()) {
+			runner.list();
+		} else {
+			runner.run();
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package antiSpamFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.uma.jmetal.solution.DoubleSolution;
+import org.uma.jmetal.solution.impl.DefaultDoubleSolution;
+
+/**
+ * <p> JMH benchmarks of the hot paths: reading the logs, evaluating a solution (the original
+ * evaluate_solution() and AntiSpamFilterProblem) and reading the results of NSGA-II.
+ * <p> Every trial writes a rules.cf, ham.log and spam.log (see CorpusGenerator) and random NSGA-II results
+ * (.rf and .rs) with the given number of emails (in each log) and rules to a temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionsBenchmark {
+
+	private static final int POPULATION = 100;
+
+	@Param({ "1000", "100000" })
+	public int emails;
+
+	@Param({ "50", "335" })
+	public int rules;
+
+	private File dir;
+	private String rules_path;
+	private String ham_path;
+	private String spam_path;
+	private String rf_path;
+	private String rs_path;
+
+	private ArrayList<String> ruleNames;
+	private ArrayList<Double> solution;
+	private ArrayList<ArrayList<String>> ham_result;
+	private AntiSpamFilterProblem problem;
+	private DoubleSolution doubleSolution;
+	private List<DoubleSolution> population;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		Random random = new Random(42);
+		dir = Files.createTempDirectory("benchmark").toFile();
+		rules_path = new File(dir, "rules.cf").getPath();
+		ham_path = new File(dir, "ham.log").getPath();
+		spam_path = new File(dir, "spam.log").getPath();
+		rf_path = new File(dir, "AntiSpamFilterProblem.NSGAII.rf").getPath();
+		rs_path = new File(dir, "AntiSpamFilterProblem.NSGAII.rs").getPath();
+
+		CorpusGenerator.write_rules(rules_path, CorpusGenerator.generate_rules(rules));
+		CorpusGenerator generator = new CorpusGenerator(CorpusGenerator.generate_rules(rules), 42);
+		generator.write(ham_path, emails, false);
+		generator.write(spam_path, emails, true);
+		try (PrintWriter rf = new PrintWriter(rf_path); PrintWriter rs = new PrintWriter(rs_path)) {
+			for (int p = 0; p < POPULATION; p++) {
+				rf.println((double) random.nextInt(emails) + " " + (double) random.nextInt(emails));
+				StringBuilder line = new StringBuilder();
+				for (int r = 0; r < rules; r++) {
+					line.append(r == 0 ? "" : " ").append(random.nextDouble() * 10 - 5);
+				}
+				rs.println(line);
+			}
+		}
+
+		ruleNames = Functions.get_rules(rules_path);
+		solution = new ArrayList<>();
+		for (int r = 0; r < rules; r++) {
+			solution.add(random.nextDouble() * 10 - 5);
+		}
+		ham_result = Functions.file_to_array(ham_path);
+
+		problem = new AntiSpamFilterProblem(rules, rules_path, ham_path, spam_path);
+		doubleSolution = new DefaultDoubleSolution(problem);
+		population = new ArrayList<>();
+		for (int p = 0; p < POPULATION; p++) {
+			population.add(new DefaultDoubleSolution(problem));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		problem.close();
+		for (File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	@Benchmark
+	public ArrayList<ArrayList<String>> fileToArray() throws IOException {
+		return Functions.file_to_array(ham_path);
+	}
+
+	@Benchmark
+	public CompiledCorpus logParser() throws IOException {
+		return LogParser.parse(ruleNames, ham_path, spam_path);
+	}
+
+	@Benchmark
+	public Double evaluateSolution() {
+		return Functions.evaluate_solution(0, ruleNames, solution, ham_result);
+	}
+
+	@Benchmark
+	public double problemEvaluate() {
+		problem.evaluate(doubleSolution);
+		return doubleSolution.getObjective(0);
+	}
+
+	/**
+	 * A whole population of 100 solutions, evaluated in a single pass (per operation, not per solution)
+	 */
+	@Benchmark
+	public double problemEvaluatePopulation() {
+		problem.evaluate(population);
+		return population.get(0).getObjective(0);
+	}
+
+	@Benchmark
+	public int chooseSolution() throws IOException {
+		return Functions.choose_solution(rf_path);
+	}
+
+	@Benchmark
+	public ArrayList<Double> getSolution() throws IOException {
+		return Functions.get_solution(POPULATION - 1, rs_path);
+	}
+}
@@ -0,0 +1,95 @@
+package antiSpamFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.uma.jmetal.solution.DoubleSolution;
+import org.uma.jmetal.solution.impl.DefaultDoubleSolution;
+
+/**
+ * <p> JMH benchmark of the evaluation NSGA-II does every generation: AntiSpamFilterProblem.evaluate(List) of a
+ * population of 100 (through AntiSpamFilterSolutionListEvaluator), with and without the evaluation cache (all
+ * hits after the first operation).
+ * <p> Run it with -prof gc, its gc.alloc.rate.norm is the garbage of each generation:
+ * java -jar benchmarks/target/benchmarks.jar PopulationBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PopulationBenchmark {
+
+	private static final int POPULATION = 100;
+
+	@Param({ "1000", "100000" })
+	public int emails;
+
+	@Param({ "335" })
+	public int rules;
+
+	@Param({ "0", "1000" })
+	public int cache;
+
+	private File dir;
+	private AntiSpamFilterProblem problem;
+	private AntiSpamFilterSolutionListEvaluator evaluator;
+	private List<DoubleSolution> population;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("benchmark").toFile();
+		String rules_path = new File(dir, "rules.cf").getPath();
+		String ham_path = new File(dir, "ham.log").getPath();
+		String spam_path = new File(dir, "spam.log").getPath();
+		ArrayList<String> ruleNames = CorpusGenerator.generate_rules(rules);
+		CorpusGenerator.write_rules(rules_path, ruleNames);
+		CorpusGenerator generator = new CorpusGenerator(ruleNames, 42);
+		generator.write(ham_path, emails, false);
+		generator.write(spam_path, emails, true);
+
+		problem = new AntiSpamFilterProblem(rules, rules_path, ham_path, spam_path);
+		problem.setEvaluationCache(cache, 0.0);
+		evaluator = new AntiSpamFilterSolutionListEvaluator();
+		population = new ArrayList<>();
+		for (int p = 0; p < POPULATION; p++) {
+			population.add(new DefaultDoubleSolution(problem));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		problem.close();
+		for (File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	/**
+	 * A whole population of 100 solutions, per operation (not per solution)
+	 */
+	@Benchmark
+	public double problemEvaluatePopulation() {
+		evaluator.evaluate(population, problem);
+		return population.get(0).getObjective(0);
+	}
+}
@@ -4,6 +4,7 @@ import org.uma.jmetal.algorithm.Algorithm;
 import org.uma.jmetal.algorithm.multiobjective.nsgaii.NSGAIIBuilder;
 import org.uma.jmetal.operator.impl.crossover.SBXCrossover;
 import org.uma.jmetal.operator.impl.mutation.PolynomialMutation;
+import org.uma.jmetal.problem.Problem;
 import org.uma.jmetal.qualityindicator.impl.hypervolume.PISAHypervolume;
 import org.uma.jmetal.solution.DoubleSolution;
 import org.uma.jmetal.util.experiment.Experiment;
@@ -16,26 +17,71 @@ import org.uma.jmetal.util.experiment.component.GenerateReferenceParetoSetAndFro
 import org.uma.jmetal.util.experiment.util.ExperimentAlgorithm;
 import org.uma.jmetal.util.experiment.util.ExperimentProblem;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 public class AntiSpamFilterAutomaticConfiguration {
 	private static final int INDEPENDENT_RUNS = 5 ;
 
+	/**
+	 * Runs the experiment, without any window, so it can also be started from the command line.
+	 *
+	 * Usage: AntiSpamFilterAutomaticConfiguration rules.cf ham.log spam.log [options] (see Settings.USAGE)
+	 *
+	 * @param args paths of rules.cf, ham.log and spam.log followed by the options
+	 * @throws IOException
+	 */
 	public static void main(String[] args) throws IOException {
-		String experimentBaseDirectory = "experimentBaseDirectory";
+		Settings settings;
+		try {
+			settings = Settings.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.out.println("WARNING: " + e.getMessage());
+			System.out.println(Settings.USAGE);
+			return;
+		}
+		run(settings, null);
+	}
+
+	/**
+	 * Runs the experiment with the settings
+	 *
+	 * @param settings of the experiment
+	 * @param progress receives the progress of the runs and can cancel them, null for none
+	 * @return true if every stage ran, false if the experiment failed or was cancelled
+	 */
+	static boolean run(Settings settings, OptimizationProgress progress) {
+		String experimentBaseDirectory = settings.outputDirectory;
+		RemoteCorpus remote = null;
+		AntiSpamFilterProblem problem = null;
 
 		try {
+			int nRules = Functions.number_of_rules(settings.rules_path);
+			if (settings.workers > 0) {
+				remote = RemoteCorpus.start(settings.rules_path, settings.ham_path, settings.spam_path, settings.workers);
+				problem = new AntiSpamFilterProblem(nRules, settings.rules_path, settings.ham_path, settings.spam_path,
+						remote);
+			} else {
+				problem = new AntiSpamFilterProblem(nRules, settings.rules_path, settings.ham_path, settings.spam_path,
+						settings.streaming);
+			}
+			problem.setParallelThreshold(settings.parallelThreshold);
+			problem.setIncrementalEvaluation(settings.incrementalPool);
+			problem.setEvaluationCache(settings.cacheCapacity, settings.cacheQuantum);
+			problem.setRacing(settings.racing, settings.racingConfidence);
+			problem.setSurrogate(settings.surrogate, settings.surrogateWindow);
+
 			List<ExperimentProblem<DoubleSolution>> problemList = new ArrayList<>();
-			problemList.add(
-					new ExperimentProblem<>(new AntiSpamFilterProblem(Functions.number_of_rules(args[0]),
-							args[0], args[1], args[2])));
+			problemList.add(new ExperimentProblem<>(problem));
 
 			List<ExperimentAlgorithm<DoubleSolution, List<DoubleSolution>>> algorithmList = configureAlgorithmList(
-					problemList);
+					problemList, settings, progress);
 
 			Experiment<DoubleSolution, List<DoubleSolution>> experiment = new ExperimentBuilder<DoubleSolution, List<DoubleSolution>>(
 					"AntiSpamStudy").setAlgorithmList(algorithmList).setProblemList(problemList)
@@ -43,36 +89,395 @@ public class AntiSpamFilterAutomaticConfiguration {
 							.setOutputParetoSetFileName("VAR")
 							.setReferenceFrontDirectory(experimentBaseDirectory + "/referenceFronts")
 							.setIndicatorList(Arrays.asList(new PISAHypervolume<DoubleSolution>()))
-							.setIndependentRuns(INDEPENDENT_RUNS).setNumberOfCores(8).build();
+							.setIndependentRuns(settings.runs).setNumberOfCores(settings.cores).build();
+
+			if (settings.stages.contains(Settings.EXECUTE)) {
+				if (progress != null) {
+					progress.start();
+				}
+				try {
+					new ExecuteAlgorithms<>(experiment).run();
+				} catch (CancellationException e) {
+					System.out.println("WARNING: optimization cancelled");
+					return false;
+				}
+			}
+			if (settings.stages.contains(Settings.REFERENCE)) {
+				new GenerateReferenceParetoSetAndFrontFromDoubleSolutions(experiment).run();
+			}
+			if (settings.stages.contains(Settings.INDICATORS)) {
+				new ComputeQualityIndicators<>(experiment).run();
+			}
+			if (settings.stages.contains(Settings.LATEX)) {
+				new GenerateLatexTablesWithStatistics(experiment).run();
+			}
+			if (settings.stages.contains(Settings.BOXPLOT)) {
+				new GenerateBoxplotsWithR<>(experiment).setRows(1).setColumns(1).run();
+			}
 
-			new ExecuteAlgorithms<>(experiment).run();
-			new GenerateReferenceParetoSetAndFrontFromDoubleSolutions(experiment).run();
-			new ComputeQualityIndicators<>(experiment).run();
-			new GenerateLatexTablesWithStatistics(experiment).run();
-			new GenerateBoxplotsWithR<>(experiment).setRows(1).setColumns(1).run();
+			EvaluationCache cache = problem.getEvaluationCache();
+			if (cache != null) {
+				System.out.println("Evaluation cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses");
+			}
+			RacingEvaluator racing = problem.getRacing();
+			if (racing != null) {
+				System.out.println("Racing: " + racing.getFullEvaluations() + " full evaluations of "
+						+ racing.getCandidates() + " offspring, " + Math.round(racing.getSaved() * 100)
+						+ "% saved (sample of " + racing.getSampleSize() + " emails)");
+			}
+			SurrogateModel surrogate = problem.getSurrogate();
+			if (surrogate != null) {
+				System.out.println("Surrogate: " + surrogate.getExactEvaluations() + " exact evaluations of "
+						+ surrogate.getCandidates() + " screened offspring, " + Math.round(surrogate.getSaved() * 100)
+						+ "% saved");
+			}
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
-		} catch (IOException e) {
+			return false;
+		} catch (IOException | UncheckedIOException e) {
 			e.printStackTrace();
+			return false;
+		} finally {
+			if (problem != null) {
+				try {
+					problem.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			if (remote != null) {
+				try {
+					remote.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
 		}
+		return true;
 	}
 
 	static List<ExperimentAlgorithm<DoubleSolution, List<DoubleSolution>>> configureAlgorithmList(
-			List<ExperimentProblem<DoubleSolution>> problemList) {
+			List<ExperimentProblem<DoubleSolution>> problemList, Settings settings, OptimizationProgress progress)
+			throws FileNotFoundException {
 		List<ExperimentAlgorithm<DoubleSolution, List<DoubleSolution>>> algorithms = new ArrayList<>();
 
 		for (int i = 0; i < problemList.size(); i++) {
-			Algorithm<List<DoubleSolution>> algorithm = new NSGAIIBuilder<>(
-					problemList.get(i).getProblem(),
-					new SBXCrossover(1.0, 5),
-					new PolynomialMutation(1.0 / problemList.get(i).getProblem().getNumberOfVariables(), 10.0))
-					.setMaxEvaluations(2000)
-					.setPopulationSize(100)
-					.build();
+			Problem<DoubleSolution> problem = problemList.get(i).getProblem();
+			String name = problemList.get(i).getTag() + ".NSGAII";
+			WarmStart warmStart = settings.warmStart(problem.getNumberOfVariables(), name);
+			Algorithm<List<DoubleSolution>> algorithm;
+			if (settings.islands > 1) {
+				// The evaluations of a run are split between the islands
+				MigrationExchange<DoubleSolution> exchange = new MigrationExchange<>(settings.islands);
+				List<IslandNSGAII> islands = new ArrayList<>();
+				for (int island = 0; island < settings.islands; island++) {
+					IslandNSGAII nsgaii = new IslandNSGAII(
+							builder(problem, settings.islandEvaluations(), settings, progress), settings.termination(),
+							progress, exchange, island, settings.migrationInterval, settings.migrants);
+					settings.checkpoint(nsgaii, name + ".island" + island);
+					nsgaii.setWarmStart(warmStart);
+					islands.add(nsgaii);
+				}
+				algorithm = new IslandModel(islands, settings.cores);
+			} else {
+				AntiSpamFilterNSGAII nsgaii = new AntiSpamFilterNSGAII(
+						builder(problem, settings.evaluations, settings, progress), settings.termination(), progress);
+				settings.checkpoint(nsgaii, name);
+				nsgaii.setWarmStart(warmStart);
+				algorithm = nsgaii;
+			}
 			algorithms.add(new ExperimentAlgorithm<>(algorithm, "NSGAII", problemList.get(i).getTag()));
 		}
 
 		return algorithms;
 	}
 
-}
\ No newline at end of file
+	private static NSGAIIBuilder<DoubleSolution> builder(Problem<DoubleSolution> problem, int evaluations,
+			Settings settings, OptimizationProgress progress) {
+		return new NSGAIIBuilder<>(
+				problem,
+				new SBXCrossover(1.0, 5),
+				new PolynomialMutation(1.0 / problem.getNumberOfVariables(), 10.0))
+				.setMaxEvaluations(evaluations)
+				.setPopulationSize(settings.population)
+				.setSolutionListEvaluator(new AntiSpamFilterSolutionListEvaluator(progress));
+	}
+
+	/**
+	 * Settings of an experiment, read from the command line. Without options they are the ones used by the
+	 * Interface (2000 evaluations, population of 100, 5 runs and all the stages), on all the available cores.
+	 */
+	static class Settings {
+		static final String EXECUTE = "execute";
+		static final String REFERENCE = "reference";
+		static final String INDICATORS = "indicators";
+		static final String LATEX = "latex";
+		static final String BOXPLOT = "boxplot";
+		static final List<String> ALL_STAGES = Arrays.asList(EXECUTE, REFERENCE, INDICATORS, LATEX, BOXPLOT);
+
+		static final String USAGE = "Usage: AntiSpamFilterAutomaticConfiguration rules.cf ham.log spam.log [options]\n"
+				+ "  --evaluations N   maximum evaluations of each run (2000, no maximum with --stagnation or --time-limit)\n"
+				+ "  --population N    population size (100)\n"
+				+ "  --runs N          independent runs (" + INDEPENDENT_RUNS + ")\n"
+				+ "  --cores N         threads used by the experiment (available processors)\n"
+				+ "  --output DIR      experiment base directory (experimentBaseDirectory)\n"
+				+ "  --stages LIST     comma separated stages to run, of " + String.join(",", ALL_STAGES) + " (all)\n"
+				+ "  --threshold N     rows counted by a single task when evaluating in parallel, 0 for sequential (0)\n"
+				+ "  --incremental N   solutions each thread keeps to evaluate the offspring incrementally, 0 for none (0)\n"
+				+ "  --cache N         evaluated solutions kept in the evaluation cache, 0 for none (0)\n"
+				+ "  --quantum Q       weights closer than Q share a cache entry, 0 for exact weights (0)\n"
+				+ "  --streaming       evaluate against the corpus cache file without loading it to memory\n"
+				+ "  --workers N       evaluation worker processes on this machine, each holding a shard of the corpus (0)\n"
+				+ "  --islands N       NSGA-II islands of each run, on up to --cores threads, sharing the evaluations (1)\n"
+				+ "  --migration N     generations between migrations of solutions between the islands (10)\n"
+				+ "  --migrants N      non-dominated solutions sent to the next island in each migration (5)\n"
+				+ "  --stagnation N    stop a run after N generations without improving the hypervolume, 0 for never (0)\n"
+				+ "  --tolerance T     relative hypervolume improvement that counts as an improvement (0.001)\n"
+				+ "  --time-limit S    stop a run after S seconds, 0 for no limit (0)\n"
+				+ "  --checkpoint N    write a checkpoint of each run every N generations to DIR/checkpoints, 0 for none (0)\n"
+				+ "  --resume          start each run from its checkpoint, if it has one (needs --checkpoint)\n"
+				+ "  --warm-start      start from the weights of rules.cf and DIR/referenceFronts/*.NSGAII.rs\n"
+				+ "  --perturbation S  standard deviation of the noise added to the warm start weights (0.5)\n"
+				+ "  --racing F        race the offspring on a sample of F of the emails, 0 to evaluate all in full (0)\n"
+				+ "  --confidence Z    standard errors of the margin of the racing estimates (2)\n"
+				+ "  --surrogate F     evaluate exactly only the F most promising offspring by a surrogate, 0 for all (0)\n"
+				+ "  --window N        evaluated solutions the surrogate is trained with (1000)";
+
+		String rules_path;
+		String ham_path;
+		String spam_path;
+		int evaluations = 2000;
+		int population = 100;
+		int runs = INDEPENDENT_RUNS;
+		int cores = Runtime.getRuntime().availableProcessors();
+		String outputDirectory = "experimentBaseDirectory";
+		List<String> stages = ALL_STAGES;
+		int parallelThreshold = 0;
+		int incrementalPool = 0;
+		int cacheCapacity = 0;
+		double cacheQuantum = 0.0;
+		boolean streaming = false;
+		int workers = 0;
+		int islands = 1;
+		int migrationInterval = 10;
+		int migrants = 5;
+		int stagnationGenerations = 0;
+		double tolerance = 0.001;
+		double timeLimit = 0.0;
+		int checkpointInterval = 0;
+		boolean resume = false;
+		boolean warmStart = false;
+		double perturbation = 0.5;
+		double racing = 0.0;
+		double racingConfidence = 2.0;
+		double surrogate = 0.0;
+		int surrogateWindow = 1000;
+
+		/**
+		 * @param args paths of rules.cf, ham.log and spam.log followed by the options
+		 * @return the settings
+		 * @throws IllegalArgumentException if the arguments are not valid
+		 */
+		static Settings parse(String[] args) {
+			if (args.length < 3) {
+				throw new IllegalArgumentException("the paths of rules.cf, ham.log and spam.log are needed");
+			}
+			Settings settings = new Settings();
+			settings.rules_path = args[0];
+			settings.ham_path = args[1];
+			settings.spam_path = args[2];
+			boolean maxEvaluations = false;
+
+			for (int i = 3; i < args.length; i++) {
+				String option = args[i];
+				if (option.equals("--streaming")) {
+					settings.streaming = true;
+					continue;
+				}
+				if (option.equals("--resume")) {
+					settings.resume = true;
+					continue;
+				}
+				if (option.equals("--warm-start")) {
+					settings.warmStart = true;
+					continue;
+				}
+				if (i + 1 == args.length) {
+					throw new IllegalArgumentException("missing value of " + option);
+				}
+				String value = args[++i];
+				switch (option) {
+				case "--evaluations":
+					settings.evaluations = positive(option, value);
+					maxEvaluations = true;
+					break;
+				case "--population":
+					settings.population = positive(option, value);
+					break;
+				case "--runs":
+					settings.runs = positive(option, value);
+					break;
+				case "--cores":
+					settings.cores = positive(option, value);
+					break;
+				case "--output":
+					settings.outputDirectory = value;
+					break;
+				case "--stages":
+					settings.stages = new ArrayList<>();
+					for (String stage : value.split(",")) {
+						if (!ALL_STAGES.contains(stage.trim())) {
+							throw new IllegalArgumentException("unknown stage " + stage);
+						}
+						settings.stages.add(stage.trim());
+					}
+					break;
+				case "--threshold":
+					settings.parallelThreshold = Math.max(0, number(option, value));
+					break;
+				case "--incremental":
+					settings.incrementalPool = Math.max(0, number(option, value));
+					break;
+				case "--cache":
+					settings.cacheCapacity = Math.max(0, number(option, value));
+					break;
+				case "--workers":
+					settings.workers = Math.max(0, number(option, value));
+					break;
+				case "--islands":
+					settings.islands = positive(option, value);
+					break;
+				case "--migration":
+					settings.migrationInterval = positive(option, value);
+					break;
+				case "--migrants":
+					settings.migrants = positive(option, value);
+					break;
+				case "--quantum":
+					settings.cacheQuantum = decimal(option, value);
+					break;
+				case "--perturbation":
+					settings.perturbation = decimal(option, value);
+					break;
+				case "--racing":
+					settings.racing = decimal(option, value);
+					if (settings.racing > 1) {
+						throw new IllegalArgumentException(option + " must be at most 1");
+					}
+					break;
+				case "--surrogate":
+					settings.surrogate = decimal(option, value);
+					if (settings.surrogate > 1) {
+						throw new IllegalArgumentException(option + " must be at most 1");
+					}
+					break;
+				case "--window":
+					settings.surrogateWindow = positive(option, value);
+					break;
+				case "--confidence":
+					settings.racingConfidence = decimal(option, value);
+					break;
+				case "--checkpoint":
+					settings.checkpointInterval = Math.max(0, number(option, value));
+					break;
+				case "--stagnation":
+					settings.stagnationGenerations = Math.max(0, number(option, value));
+					break;
+				case "--tolerance":
+					settings.tolerance = decimal(option, value);
+					break;
+				case "--time-limit":
+					settings.timeLimit = decimal(option, value);
+					break;
+				default:
+					throw new IllegalArgumentException("unknown option " + option);
+				}
+			}
+			if (settings.resume && settings.checkpointInterval == 0) {
+				throw new IllegalArgumentException("--resume needs --checkpoint, to go on writing checkpoints");
+			}
+			if (!maxEvaluations && (settings.stagnationGenerations > 0 || settings.timeLimit > 0)) {
+				// The runs stop by stagnation or time, not after the default 2000 evaluations
+				settings.evaluations = Integer.MAX_VALUE;
+			}
+			return settings;
+		}
+
+		/**
+		 * @return a new Termination for a run (or island) with these settings
+		 */
+		Termination termination() {
+			return new Termination(stagnationGenerations, tolerance, (long) (timeLimit * 1000));
+		}
+
+		/**
+		 * Turns on the checkpoints of a run (or island), if they are on in these settings
+		 *
+		 * @param nsgaii algorithm of the run
+		 * @param name of the algorithm in the names of its checkpoints
+		 */
+		void checkpoint(AntiSpamFilterNSGAII nsgaii, String name) {
+			if (checkpointInterval > 0) {
+				nsgaii.setCheckpoint(new File(outputDirectory, "checkpoints"), name, checkpointInterval, resume);
+			}
+		}
+
+		/**
+		 * Reads the weights of the warm start, if it is on in these settings: rules.cf and the Pareto set of the
+		 * last experiment in the output directory, before this experiment replaces it
+		 *
+		 * @param nRules number of rules
+		 * @param name of the problem and algorithm in the name of the Pareto set (e.g. AntiSpamFilterProblem.NSGAII)
+		 * @return the warm start, null if it is off or there are no valid weights
+		 * @throws FileNotFoundException if rules.cf doesn't exist
+		 */
+		WarmStart warmStart(int nRules, String name) throws FileNotFoundException {
+			if (!warmStart) {
+				return null;
+			}
+			WarmStart seeds = WarmStart.read(rules_path, outputDirectory + "/referenceFronts/" + name + ".rs", nRules,
+					perturbation);
+			if (seeds != null) {
+				System.out.println("Warm start from " + seeds.getNumberOfSeeds() + " known solutions");
+			}
+			return seeds;
+		}
+
+		/**
+		 * @return evaluations of each island, the evaluations of a run split between the islands (at least one
+		 *         population each)
+		 */
+		int islandEvaluations() {
+			return (int) Math.max((evaluations + (long) islands - 1) / islands, population);
+		}
+
+		private static int number(String option, String value) {
+			try {
+				return Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("invalid value of " + option + ": " + value);
+			}
+		}
+
+		private static double decimal(String option, String value) {
+			double number;
+			try {
+				number = Double.parseDouble(value);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("invalid value of " + option + ": " + value);
+			}
+			if (!(number >= 0)) {
+				throw new IllegalArgumentException(option + " must not be negative");
+			}
+			return number;
+		}
+
+		private static int positive(String option, String value) {
+			int number = number(option, value);
+			if (number < 1) {
+				throw new IllegalArgumentException(option + " must be at least 1");
+			}
+			return number;
+		}
+	}
+}
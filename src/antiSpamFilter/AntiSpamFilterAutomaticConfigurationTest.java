@@ -0,0 +1,113 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import antiSpamFilter.AntiSpamFilterAutomaticConfiguration.Settings;
+
+public class AntiSpamFilterAutomaticConfigurationTest {
+
+	/**
+	 * Parses only the 3 paths. To test this it was verified if the settings are the ones the Interface always
+	 * used, with the available processors as cores.
+	 */
+	@Test
+	public final void testParseDefaults() {
+		Settings settings = Settings.parse(new String[] { "rules.cf", "ham.log", "spam.log" });
+		assertEquals("rules.cf", settings.rules_path);
+		assertEquals("ham.log", settings.ham_path);
+		assertEquals("spam.log", settings.spam_path);
+		assertEquals(2000, settings.evaluations);
+		assertEquals(100, settings.population);
+		assertEquals(5, settings.runs);
+		assertEquals(Runtime.getRuntime().availableProcessors(), settings.cores);
+		assertEquals("experimentBaseDirectory", settings.outputDirectory);
+		assertEquals(Settings.ALL_STAGES, settings.stages);
+		assertFalse(settings.streaming);
+		assertEquals(1, settings.islands);
+	}
+
+	/**
+	 * Parses --stagnation and --time-limit with and without --evaluations. To test this it was verified if the
+	 * evaluations have no maximum unless --evaluations is given, and if the islands still split them.
+	 */
+	@Test
+	public final void testParseStoppingRules() {
+		Settings stagnation = Settings.parse(new String[] { "rules.cf", "ham.log", "spam.log", "--stagnation", "25" });
+		assertEquals(Integer.MAX_VALUE, stagnation.evaluations);
+		Settings timeLimit = Settings.parse(new String[] { "rules.cf", "ham.log", "spam.log", "--time-limit", "60",
+				"--islands", "4" });
+		assertEquals(Integer.MAX_VALUE, timeLimit.evaluations);
+		assertEquals((Integer.MAX_VALUE + 3L) / 4, timeLimit.islandEvaluations());
+		Settings both = Settings.parse(new String[] { "rules.cf", "ham.log", "spam.log", "--time-limit", "60",
+				"--evaluations", "5000" });
+		assertEquals(5000, both.evaluations);
+	}
+
+	/**
+	 * Parses every option. To test this it was verified if each one changes its setting.
+	 */
+	@Test
+	public final void testParseOptions() {
+		Settings settings = Settings.parse(new String[] { "rules.cf", "ham.log", "spam.log", "--evaluations", "50000",
+				"--population", "200", "--runs", "30", "--cores", "64", "--output", "out", "--stages",
+				"execute,reference", "--threshold", "4096", "--incremental", "8", "--cache", "1000", "--quantum", "0.001", "--streaming",
+				"--islands", "8", "--migration", "5", "--migrants", "3", "--workers", "4",
+				"--stagnation", "25", "--tolerance", "0.01", "--time-limit", "1.5",
+				"--checkpoint", "10", "--resume", "--warm-start", "--perturbation", "0.25",
+				"--racing", "0.1", "--confidence", "3", "--surrogate", "0.5", "--window", "200" });
+		assertEquals(50000, settings.evaluations);
+		assertEquals(200, settings.population);
+		assertEquals(30, settings.runs);
+		assertEquals(64, settings.cores);
+		assertEquals("out", settings.outputDirectory);
+		assertEquals(Arrays.asList(Settings.EXECUTE, Settings.REFERENCE), settings.stages);
+		assertEquals(4096, settings.parallelThreshold);
+		assertEquals(8, settings.incrementalPool);
+		assertEquals(1000, settings.cacheCapacity);
+		assertEquals(0.001, settings.cacheQuantum, 0.0);
+		assertTrue(settings.streaming);
+		assertEquals(8, settings.islands);
+		assertEquals(5, settings.migrationInterval);
+		assertEquals(3, settings.migrants);
+		assertEquals(4, settings.workers);
+		assertEquals(25, settings.stagnationGenerations);
+		assertEquals(0.01, settings.tolerance, 0.0);
+		assertEquals(1.5, settings.timeLimit, 0.0);
+		assertEquals(10, settings.checkpointInterval);
+		assertTrue(settings.resume);
+		assertTrue(settings.warmStart);
+		assertEquals(0.25, settings.perturbation, 0.0);
+		assertEquals(0.1, settings.racing, 0.0);
+		assertEquals(3.0, settings.racingConfidence, 0.0);
+		assertEquals(0.5, settings.surrogate, 0.0);
+		assertEquals(200, settings.surrogateWindow);
+		assertEquals(6250, settings.islandEvaluations());
+	}
+
+	/**
+	 * Parses invalid arguments. To test this it was verified if each one is rejected.
+	 */
+	@Test
+	public final void testParseInvalid() {
+		String[][] invalid = { { "rules.cf", "ham.log" }, { "rules.cf", "ham.log", "spam.log", "--runs", "0" },
+				{ "rules.cf", "ham.log", "spam.log", "--cores" }, { "rules.cf", "ham.log", "spam.log", "--stages", "pdf" },
+				{ "rules.cf", "ham.log", "spam.log", "--population", "many" },
+				{ "rules.cf", "ham.log", "spam.log", "--display" },
+				{ "rules.cf", "ham.log", "spam.log", "--time-limit", "-1" },
+				{ "rules.cf", "ham.log", "spam.log", "--racing", "1.5" },
+				{ "rules.cf", "ham.log", "spam.log", "--surrogate", "2" },
+				{ "rules.cf", "ham.log", "spam.log", "--resume" } };
+		for (String[] args : invalid) {
+			try {
+				Settings.parse(args);
+				fail("failure - " + Arrays.toString(args) + " should be rejected");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+}
@@ -0,0 +1,303 @@
+package antiSpamFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.uma.jmetal.algorithm.multiobjective.nsgaii.NSGAII;
+import org.uma.jmetal.algorithm.multiobjective.nsgaii.NSGAIIBuilder;
+import org.uma.jmetal.solution.DoubleSolution;
+import org.uma.jmetal.util.pseudorandom.JMetalRandom;
+
+/**
+ * <p> NSGA-II of the automatic configuration. It stops as decided by its Termination (maximum evaluations,
+ * stagnation of the hypervolume or time limit), measuring the population once per generation, and reports
+ * why it stopped.
+ * <p> With setCheckpoint() it writes a Checkpoint of each run every few generations and when the run ends. A
+ * resumed run starts from its checkpoint instead of a new population, and a run that had already ended gives
+ * its final population again without evolving it, so the experiment can be started again after the JVM dies.
+ * The runs are told apart by counting them, as the experiment runs them one after the other. The state of the
+ * random numbers is only saved and restored for runs of a single algorithm: the islands of an IslandModel share
+ * the random generator of jMetal while they run concurrently, so a resumed island run is not reproducible.
+ * <p> With setWarmStart() new runs start from known weights (see WarmStart) instead of random ones.
+ * <p> The offspring are screened against the population when the problem has racing (see RacingEvaluator) or the
+ * surrogate (see SurrogateModel) on. Solutions that only have estimated FP/FN are evaluated in full as soon as
+ * they survive a replacement, so the population only has exact FP/FN, and again before a checkpoint is written or
+ * the result is given.
+ */
+public class AntiSpamFilterNSGAII extends NSGAII<DoubleSolution> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient Termination termination;
+	private final transient OptimizationProgress progress;
+	private String stopReason;
+	private int generation = 0;
+
+	private File checkpointDirectory;
+	private String checkpointName;
+	private int checkpointInterval = 0;
+	private boolean resume = false;
+	private int runs = 0;
+	private File checkpointFile;
+	private transient Checkpoint restored;
+	private transient boolean skipEvaluation = false;
+	private transient WarmStart warmStart;
+	private transient boolean evolving = false;
+
+	/**
+	 * @param builder with the problem, operators, evaluations and population
+	 * @param termination of the run
+	 * @param progress told why the run stopped, null for none
+	 */
+	public AntiSpamFilterNSGAII(NSGAIIBuilder<DoubleSolution> builder, Termination termination,
+			OptimizationProgress progress) {
+		super(builder.getProblem(), builder.getMaxIterations(), builder.getPopulationSize(),
+				builder.getCrossoverOperator(), builder.getMutationOperator(), builder.getSelectionOperator(),
+				builder.getSolutionListEvaluator());
+		this.termination = termination;
+		this.progress = progress;
+	}
+
+	/**
+	 * Turns on the checkpoints, written to directory/name.runN.ckpt (N counts the runs from 0)
+	 *
+	 * @param directory of the checkpoints
+	 * @param name of this algorithm in the file names (different for each algorithm or island)
+	 * @param interval generations between checkpoints
+	 * @param resume true to start each run from its checkpoint, if there is one
+	 */
+	public void setCheckpoint(File directory, String name, int interval, boolean resume) {
+		directory.mkdirs();
+		this.checkpointDirectory = directory;
+		this.checkpointName = name;
+		this.checkpointInterval = interval;
+		this.resume = resume;
+	}
+
+	/**
+	 * @param warmStart weights of the initial population of new runs, null for random weights
+	 */
+	public void setWarmStart(WarmStart warmStart) {
+		this.warmStart = warmStart;
+	}
+
+	@Override
+	protected List<DoubleSolution> createInitialPopulation() {
+		restored = null;
+		evolving = false;
+		if (!isIsland()) {
+			resetSurrogate();
+		}
+		runs++;
+		if (checkpointDirectory != null) {
+			checkpointFile = new File(checkpointDirectory, checkpointName + ".run" + (runs - 1) + Checkpoint.EXTENSION);
+			if (resume) {
+				restored = Checkpoint.read(checkpointFile);
+			}
+		}
+		if (restored == null) {
+			return warmStart == null ? super.createInitialPopulation() : warmStartPopulation();
+		}
+
+		List<DoubleSolution> population = new ArrayList<>(restored.variables.length);
+		for (int p = 0; p < restored.variables.length; p++) {
+			DoubleSolution solution = getProblem().createSolution();
+			for (int i = 0; i < restored.variables[p].length; i++) {
+				solution.setVariableValue(i, restored.variables[p][i]);
+			}
+			solution.setObjective(0, restored.objectives[p][0]);
+			solution.setObjective(1, restored.objectives[p][1]);
+			population.add(solution);
+		}
+		if (!isIsland()) {
+			Checkpoint.restore_random(restored.random);
+		}
+		skipEvaluation = true;
+		return population;
+	}
+
+	/**
+	 * @return initial population with the weights of the warm start
+	 */
+	private List<DoubleSolution> warmStartPopulation() {
+		DoubleSolution first = getProblem().createSolution();
+		Random random = new Random(JMetalRandom.getInstance().nextInt(0, Integer.MAX_VALUE - 1));
+		double[][] weights = warmStart.population(getMaxPopulationSize(), first.getLowerBound(0),
+				first.getUpperBound(0), random);
+		List<DoubleSolution> population = new ArrayList<>(weights.length);
+		for (int p = 0; p < weights.length; p++) {
+			DoubleSolution solution = p == 0 ? first : getProblem().createSolution();
+			for (int i = 0; i < solution.getNumberOfVariables(); i++) {
+				solution.setVariableValue(i, weights[p][i]);
+			}
+			population.add(solution);
+		}
+		return population;
+	}
+
+	@Override
+	protected List<DoubleSolution> evaluatePopulation(List<DoubleSolution> population) {
+		if (skipEvaluation) {
+			skipEvaluation = false;
+			return population; // restored with its objectives
+		}
+		if (evolving && evaluator instanceof AntiSpamFilterSolutionListEvaluator) {
+			return ((AntiSpamFilterSolutionListEvaluator) evaluator).evaluate(population, getProblem(), getPopulation());
+		}
+		return super.evaluatePopulation(population);
+	}
+
+	/**
+	 * Replaces the population like NSGA-II, evaluating in full the estimated offspring that would survive and then
+	 * replacing it again with their exact FP/FN, until every survivor is exact
+	 */
+	@Override
+	protected List<DoubleSolution> replacement(List<DoubleSolution> population, List<DoubleSolution> offspring) {
+		List<DoubleSolution> next = super.replacement(population, offspring);
+		while (evaluateEstimated(next)) {
+			next = super.replacement(population, offspring);
+		}
+		return next;
+	}
+
+	@Override
+	public List<DoubleSolution> getResult() {
+		evaluateEstimated(getPopulation());
+		return super.getResult();
+	}
+
+	/**
+	 * Evaluates in full the solutions that only have estimated FP/FN
+	 *
+	 * @param population solutions to check
+	 * @return true if some solution was evaluated
+	 */
+	private boolean evaluateEstimated(List<DoubleSolution> population) {
+		return getProblem() instanceof AntiSpamFilterProblem && population != null
+				&& ((AntiSpamFilterProblem) getProblem()).evaluateEstimated(population);
+	}
+
+	@Override
+	protected void initProgress() {
+		super.initProgress();
+		stopReason = null;
+		generation = 0;
+		if (restored != null) {
+			evaluations = restored.evaluations;
+			generation = restored.generation;
+			if (restored.finished) {
+				stopReason = "already ended, restored from " + checkpointFile;
+			}
+			System.out.println("Resuming " + checkpointFile + " at generation " + generation);
+		}
+		termination.start(getPopulation());
+		evolving = true;
+		if (progress != null) {
+			progress.generation(runs, generation);
+		}
+	}
+
+	@Override
+	protected void updateProgress() {
+		super.updateProgress();
+		generation++;
+		if (progress != null) {
+			progress.generation(runs, generation);
+		}
+		termination.update(getPopulation());
+		if (checkpointInterval > 0 && generation % checkpointInterval == 0) {
+			checkpoint(false);
+		}
+	}
+
+	@Override
+	protected boolean isStoppingConditionReached() {
+		if (stopReason == null) {
+			stopReason = termination.reason(evaluations, maxEvaluations);
+			if (stopReason != null) {
+				System.out.println("NSGA-II stopped: " + stopReason);
+				if (progress != null) {
+					progress.stopped(stopReason);
+				}
+				if (checkpointInterval > 0) {
+					checkpoint(true);
+				}
+			}
+		}
+		return stopReason != null;
+	}
+
+	/**
+	 * Checks if the run must stop, like isStoppingConditionReached() but without reporting it
+	 *
+	 * @return true if the run stopped or must stop
+	 */
+	protected boolean isStopping() {
+		return stopReason != null || termination.reason(evaluations, maxEvaluations) != null;
+	}
+
+	/**
+	 * Writes the checkpoint of the run
+	 *
+	 * @param finished true if the run ended
+	 */
+	private void checkpoint(boolean finished) {
+		if (checkpointFile == null) {
+			return;
+		}
+		List<DoubleSolution> population = getPopulation();
+		evaluateEstimated(population);
+		double[][] variables = new double[population.size()][];
+		double[][] objectives = new double[population.size()][];
+		for (int p = 0; p < variables.length; p++) {
+			DoubleSolution solution = population.get(p);
+			variables[p] = new double[solution.getNumberOfVariables()];
+			for (int i = 0; i < variables[p].length; i++) {
+				variables[p][i] = solution.getVariableValue(i);
+			}
+			objectives[p] = new double[] { solution.getObjective(0), solution.getObjective(1) };
+		}
+		try {
+			byte[] random = isIsland() ? new byte[0] : Checkpoint.save_random(); // shared by the islands
+			new Checkpoint(finished, evaluations, generation, variables, objectives, random).write(checkpointFile);
+		} catch (IOException e) {
+			System.out.println("WARNING: could not write checkpoint " + checkpointFile);
+		}
+	}
+
+	/**
+	 * Resets the surrogate of the problem, if it has one, so each independent run trains its own
+	 */
+	void resetSurrogate() {
+		if (getProblem() instanceof AntiSpamFilterProblem) {
+			SurrogateModel surrogate = ((AntiSpamFilterProblem) getProblem()).getSurrogate();
+			if (surrogate != null) {
+				surrogate.reset();
+			}
+		}
+	}
+
+	/**
+	 * @return true if this is an island of an IslandModel, which shares the run with the other islands
+	 */
+	protected boolean isIsland() {
+		return false;
+	}
+
+	/**
+	 * @return why the run stopped, null if it didn't stop yet
+	 */
+	public String getStopReason() {
+		return stopReason;
+	}
+
+	/**
+	 * @return number of generations evolved by the run (0 is the initial population)
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+}
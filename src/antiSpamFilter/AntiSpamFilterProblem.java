@@ -1,13 +1,16 @@
 package antiSpamFilter;
 
-import java.io.FileNotFoundException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.uma.jmetal.problem.impl.AbstractDoubleProblem;
 import org.uma.jmetal.solution.DoubleSolution;
 
-public class AntiSpamFilterProblem extends AbstractDoubleProblem {
+public class AntiSpamFilterProblem extends AbstractDoubleProblem implements Closeable {
 
 	/**
 	 * 
@@ -18,23 +21,60 @@ public class AntiSpamFilterProblem extends AbstractDoubleProblem {
 	private String rules_path = "AntiSpamConfigurationForBalancedProfessionalAndLeisureMailbox/rules.cf";
 	private String ham_path;
 	private String spam_path;
-	private ArrayList<String> rules;
-	private ArrayList<ArrayList<String>> ham_result;
-	private ArrayList<ArrayList<String>> spam_result;
+	private CompiledCorpus corpus;
+	private transient StreamingCorpus stream;
+	private transient RemoteCorpus remote;
+	private transient ThreadLocal<IncrementalEvaluator> incremental;
+	private int parallelThreshold = 0;
+	private EvaluationCache cache;
+	private transient RacingEvaluator racing;
+	private transient SurrogateModel surrogate;
+
+	// Reused by evaluate(DoubleSolution), one per thread, so evaluating a solution allocates nothing
+	private transient ThreadLocal<double[]> weightsBuffer = ThreadLocal.withInitial(() -> new double[getNumberOfVariables()]);
+	private transient ThreadLocal<double[]> fxBuffer = ThreadLocal.withInitial(() -> new double[2]);
+	// Reused by evaluate(List), one per thread, so evaluating a population with the corpus in memory allocates nothing
+	private transient ThreadLocal<PopulationBuffers> populationBuffers = ThreadLocal.withInitial(PopulationBuffers::new);
 
+	/**
+	 * @throws UncheckedIOException if ham.log or spam.log can not be read
+	 */
 	public AntiSpamFilterProblem(int nRules, String rulesPath, String hamPath, String spamPath) {
+		this(nRules, rulesPath, hamPath, spamPath, false);
+	}
+
+	/**
+	 * @param streaming true to evaluate against the cache file of the corpus one chunk at a time, without
+	 * reading it to memory (see StreamingCorpus), for logs larger than the heap
+	 */
+	public AntiSpamFilterProblem(int nRules, String rulesPath, String hamPath, String spamPath, boolean streaming) {
+		this(nRules, rulesPath, hamPath, spamPath, streaming, null);
+	}
+
+	/**
+	 * @param remote evaluation workers holding the corpus (see RemoteCorpus), so this process doesn't read it
+	 */
+	public AntiSpamFilterProblem(int nRules, String rulesPath, String hamPath, String spamPath, RemoteCorpus remote) {
+		this(nRules, rulesPath, hamPath, spamPath, false, remote);
+	}
+
+	private AntiSpamFilterProblem(int nRules, String rulesPath, String hamPath, String spamPath, boolean streaming,
+			RemoteCorpus remote) {
 		this.nRules=nRules;
 		this.rules_path=rulesPath;
 		this.ham_path=hamPath;
 		this.spam_path=spamPath;
+		this.remote=remote;
 		
 
 		try {
-			rules = Functions.get_rules(rules_path);
-			ham_result = Functions.file_to_array(ham_path);
-			spam_result = Functions.file_to_array(spam_path);
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
+			if (streaming) {
+				stream = StreamingCorpus.open(rules_path, ham_path, spam_path);
+			} else if (remote == null) { // otherwise the workers hold the corpus
+				corpus = CorpusCache.load(rules_path, ham_path, spam_path);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not read the corpus of " + ham_path + " and " + spam_path, e);
 		}
 
 		setNumberOfVariables(nRules);
@@ -56,22 +96,352 @@ public class AntiSpamFilterProblem extends AbstractDoubleProblem {
 	public void evaluate(DoubleSolution solution){
 
 
-		double[] fx = new double[getNumberOfObjectives()];	
-		ArrayList<Double> solution_tmp = new ArrayList<>();
+		double[] solution_tmp = weightsBuffer.get();
 
 		for (int i = 0; i < solution.getNumberOfVariables(); i++) {
-			solution_tmp.add(solution.getVariableValue(i));
+			solution_tmp[i] = solution.getVariableValue(i);
 		}
 
-		fx[0] = Functions.evaluate_solution(0, rules, solution_tmp, ham_result); // FP
-		fx[1] = Functions.evaluate_solution(1, rules, solution_tmp, spam_result); // FN
+		double[] fx = fxBuffer.get(); // {FP, FN}
+		if (cache == null || !cache.get(solution_tmp, fx)) {
+			if (incremental != null) {
+				incremental.get().evaluate(solution_tmp, fx);
+			} else if (stream != null || remote != null) {
+				System.arraycopy(evaluateStream(new double[][] { solution_tmp })[0], 0, fx, 0, 2);
+			} else {
+				corpus.evaluate(solution_tmp, parallelThreshold, fx);
+			}
+			if (cache != null) {
+				cache.put(solution_tmp, fx);
+			}
+		}
+		if (surrogate != null) {
+			surrogate.add(solution_tmp, fx);
+		}
 
 		solution.setObjective(0, fx[0]);
 		solution.setObjective(1, fx[1]);
 		
 	}
 
+	/**
+	 * Evaluates a whole population with a single pass over the corpus (see CompiledCorpus.evaluatePopulation()),
+	 * or solution by solution from the ones evaluated before with incremental evaluation on
+	 * 
+	 * @param population solutions to evaluate
+	 */
+	public void evaluate(List<DoubleSolution> population) {
+		int size = population.size();
+		PopulationBuffers buffers = populationBuffers.get();
+		buffers.ensure(size, getNumberOfVariables());
+		double[][] solutions = buffers.weights;
+		for (int p = 0; p < size; p++) {
+			DoubleSolution solution = population.get(p);
+			for (int i = 0; i < solution.getNumberOfVariables(); i++) {
+				solutions[p][i] = solution.getVariableValue(i);
+			}
+		}
+
+		double[][] fx = buffers.fx; // {FP, FN} of each solution
+		if (cache == null) {
+			evaluatePopulation(solutions, size, fx);
+		} else {
+			// Only the solutions that are not in the cache are evaluated
+			int nMissing = 0;
+			for (int p = 0; p < size; p++) {
+				if (!cache.get(solutions[p], fx[p])) {
+					buffers.missing[nMissing] = p;
+					buffers.missingWeights[nMissing++] = solutions[p];
+				}
+			}
+			if (nMissing > 0) {
+				evaluatePopulation(buffers.missingWeights, nMissing, buffers.missingFx);
+			}
+			for (int m = 0; m < nMissing; m++) {
+				System.arraycopy(buffers.missingFx[m], 0, fx[buffers.missing[m]], 0, 2);
+				cache.put(buffers.missingWeights[m], buffers.missingFx[m]);
+			}
+		}
+
+		for (int p = 0; p < size; p++) {
+			population.get(p).setObjective(0, fx[p][0]);
+			population.get(p).setObjective(1, fx[p][1]);
+			if (racing != null || surrogate != null) {
+				population.get(p).setAttribute(RacingEvaluator.ESTIMATED, null);
+			}
+			if (surrogate != null) {
+				surrogate.add(solutions[p], fx[p]);
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the offspring of a population. With the surrogate on (and trained) only the most promising
+	 * offspring by its predictions go on (see SurrogateModel); with racing on they race on the sample of the
+	 * corpus and only the ones whose optimistic estimate is not dominated by a solution of the population go on
+	 * (see RacingEvaluator). The offspring that go on are evaluated in full, the others get their estimates and are
+	 * marked as estimated. With neither every offspring is evaluated in full.
+	 * 
+	 * @param offspring solutions to evaluate
+	 * @param population evaluated solutions the offspring are compared with
+	 */
+	public void evaluateOffspring(List<DoubleSolution> offspring, List<DoubleSolution> population) {
+		if (racing == null && surrogate == null) {
+			evaluate(offspring);
+			return;
+		}
+		List<double[]> exact = new ArrayList<>();
+		for (DoubleSolution solution : population) {
+			if (!RacingEvaluator.isEstimated(solution)) {
+				exact.add(new double[] { solution.getObjective(0), solution.getObjective(1) });
+			}
+		}
+		double[][] reference = exact.toArray(new double[0][]);
+
+		List<DoubleSolution> candidates = offspring;
+		if (surrogate != null && surrogate.isTrained()) {
+			double[][] predictions = surrogate.predict(weights(candidates));
+			candidates = screen(candidates, surrogate.select(predictions, reference), predictions, surrogate);
+		}
+		if (racing != null) {
+			double[][] estimates = racing.estimate(weights(candidates));
+			candidates = screen(candidates, racing.race(estimates, reference), estimates, racing);
+		}
+		if (!candidates.isEmpty()) {
+			evaluate(candidates);
+		}
+	}
+
+	/**
+	 * Gives the estimates to the solutions that don't go on, marking them as estimated
+	 * 
+	 * @param solutions screened solutions
+	 * @param selected true for the solutions that go on
+	 * @param estimates {FP, FN} estimated for each solution
+	 * @param estimator that made the estimates, the value of the mark
+	 * @return the solutions that go on
+	 */
+	private static List<DoubleSolution> screen(List<DoubleSolution> solutions, boolean[] selected,
+			double[][] estimates, Object estimator) {
+		List<DoubleSolution> next = new ArrayList<>();
+		for (int p = 0; p < solutions.size(); p++) {
+			DoubleSolution solution = solutions.get(p);
+			if (selected[p]) {
+				next.add(solution);
+			} else {
+				solution.setObjective(0, estimates[p][0]);
+				solution.setObjective(1, estimates[p][1]);
+				solution.setAttribute(RacingEvaluator.ESTIMATED, estimator);
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Evaluates in full the solutions that only have estimated FP/FN, counting them as full evaluations of the
+	 * racing or the surrogate that estimated them
+	 * 
+	 * @param population solutions to check
+	 * @return true if some solution was evaluated
+	 */
+	public boolean evaluateEstimated(List<DoubleSolution> population) {
+		List<DoubleSolution> estimated = new ArrayList<>();
+		for (DoubleSolution solution : population) {
+			Object estimator = solution.getAttribute(RacingEvaluator.ESTIMATED);
+			if (estimator instanceof RacingEvaluator) {
+				((RacingEvaluator) estimator).countFull(1);
+			} else if (estimator instanceof SurrogateModel) {
+				((SurrogateModel) estimator).countExact(1);
+			}
+			if (estimator != null) {
+				estimated.add(solution);
+			}
+		}
+		if (estimated.isEmpty()) {
+			return false;
+		}
+		evaluate(estimated);
+		return true;
+	}
+
+	/**
+	 * @return weights of each solution
+	 */
+	private double[][] weights(List<DoubleSolution> population) {
+		double[][] solutions = new double[population.size()][getNumberOfVariables()];
+		for (int p = 0; p < population.size(); p++) {
+			DoubleSolution solution = population.get(p);
+			for (int i = 0; i < solution.getNumberOfVariables(); i++) {
+				solutions[p][i] = solution.getVariableValue(i);
+			}
+		}
+		return solutions;
+	}
+
+	/**
+	 * Evaluates the first size solutions, writing {FP, FN} of solution p to fx[p]
+	 */
+	private void evaluatePopulation(double[][] solutions, int size, double[][] fx) {
+		if (incremental != null) {
+			IncrementalEvaluator evaluator = incremental.get();
+			for (int p = 0; p < size; p++) {
+				evaluator.evaluate(solutions[p], fx[p]);
+			}
+		} else if (stream != null || remote != null) {
+			double[][] streamed = evaluateStream(Arrays.copyOf(solutions, size));
+			for (int p = 0; p < size; p++) {
+				System.arraycopy(streamed[p], 0, fx[p], 0, 2);
+			}
+		} else {
+			corpus.evaluatePopulation(solutions, size, parallelThreshold, fx);
+		}
+	}
+
+	/**
+	 * Evaluates the solutions with the streaming corpus or the workers, which read from files or sockets
+	 */
+	private double[][] evaluateStream(double[][] solutions) {
+		try {
+			if (remote != null) {
+				return remote.evaluatePopulation(solutions, parallelThreshold);
+			}
+			return stream.evaluatePopulation(solutions, parallelThreshold);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Turns on incremental evaluation: each thread keeps the last evaluated solutions with the score of every
+	 * distinct email, and a solution close to one of them only scores again the emails of the rules that changed
+	 * (see IncrementalEvaluator). It pays off when the offspring differ from an evaluated solution in a few rare
+	 * rules; offspring that differ in many rules are scanned in full, one at a time. Only for a corpus in memory.
+	 * 
+	 * @param poolSize number of evaluated solutions kept by each thread, 0 to turn it off
+	 */
+	public void setIncrementalEvaluation(int poolSize) {
+		if (poolSize > 0 && corpus != null) {
+			incremental = ThreadLocal.withInitial(() -> new IncrementalEvaluator(corpus, poolSize));
+		} else {
+			incremental = null;
+		}
+	}
+
+	/**
+	 * @return the incremental evaluator of the calling thread (with its counters), null if it is off
+	 */
+	IncrementalEvaluator getIncrementalEvaluator() {
+		return incremental == null ? null : incremental.get();
+	}
+
+	/**
+	 * Turns on parallel evaluation: the corpus is split in shards of at most threshold rows (distinct emails),
+	 * counted in parallel by the common ForkJoinPool. Corpora smaller than threshold are still evaluated
+	 * sequentially.
+	 * 
+	 * @param threshold maximum number of rows counted by a single task, 0 to turn it off
+	 */
+	public void setParallelThreshold(int threshold) {
+		this.parallelThreshold = Math.max(threshold, 0);
+	}
+
+	/**
+	 * Turns on the evaluation cache: solutions already evaluated (by any run) are not evaluated again
+	 * (see EvaluationCache).
+	 * 
+	 * @param capacity number of evaluated solutions kept, 0 to turn it off
+	 * @param quantum weights closer than this are taken as the same, 0 to only reuse exactly the same weights
+	 */
+	public void setEvaluationCache(int capacity, double quantum) {
+		cache = capacity > 0 ? new EvaluationCache(capacity, quantum) : null;
+	}
+
+	/**
+	 * Turns on racing of the offspring (see race() and RacingEvaluator), taking a stratified sample of the corpus
+	 * 
+	 * @param fraction of the emails in the sample, 0 to turn it off
+	 * @param confidence standard errors of the margin of the estimates
+	 * @throws IOException if the cache of the corpus can't be read
+	 */
+	public void setRacing(double fraction, double confidence) throws IOException {
+		if (fraction <= 0) {
+			racing = null;
+		} else if (corpus != null) {
+			racing = RacingEvaluator.sample(corpus, fraction, confidence);
+		} else if (stream != null) {
+			racing = RacingEvaluator.sample(stream, fraction, confidence);
+		} else {
+			try (StreamingCorpus sampled = StreamingCorpus.open(rules_path, ham_path, spam_path)) {
+				racing = RacingEvaluator.sample(sampled, fraction, confidence);
+			}
+		}
+	}
+
+	/**
+	 * Turns on the surrogate pre-screening of the offspring (see evaluateOffspring() and SurrogateModel)
+	 * 
+	 * @param fraction of the offspring evaluated exactly, 0 to turn it off
+	 * @param window number of evaluated solutions the surrogate is trained with
+	 */
+	public void setSurrogate(double fraction, int window) {
+		surrogate = fraction > 0 ? new SurrogateModel(getNumberOfVariables(), fraction, window) : null;
+	}
+
+	/**
+	 * @return the surrogate (with its counters of exact evaluations), null if it is off
+	 */
+	public SurrogateModel getSurrogate() {
+		return surrogate;
+	}
+
+	/**
+	 * @return the racing evaluator (with its counters of full evaluations), null if it is off
+	 */
+	public RacingEvaluator getRacing() {
+		return racing;
+	}
+
+	/**
+	 * @return the evaluation cache (with its hit and miss counters), null if it is off
+	 */
+	public EvaluationCache getEvaluationCache() {
+		return cache;
+	}
+
 	public int getnRules() {
 		return nRules;
 	}
+
+	/**
+	 * Closes the streaming corpus, if the problem opened one. The workers of a RemoteCorpus are closed by whoever
+	 * started them.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (stream != null) {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Weights and {FP, FN} of a population, and of its solutions missing from the evaluation cache, grown to
+	 * the largest population evaluated
+	 */
+	private static final class PopulationBuffers {
+		double[][] weights = new double[0][];
+		double[][] fx = new double[0][];
+		int[] missing = new int[0];
+		double[][] missingWeights = new double[0][];
+		double[][] missingFx = new double[0][];
+
+		void ensure(int size, int nRules) {
+			if (weights.length < size) {
+				weights = new double[size][nRules];
+				fx = new double[size][2];
+				missing = new int[size];
+				missingWeights = new double[size][];
+				missingFx = new double[size][2];
+			}
+		}
+	}
 }
@@ -0,0 +1,127 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.uma.jmetal.solution.DoubleSolution;
+
+public class AntiSpamFilterProblemTest {
+
+	private final TestCorpus files = new TestCorpus();
+
+	/**
+	 * Deletes the temporary files of the test
+	 */
+	@After
+	public void deleteFiles() {
+		files.delete();
+	}
+
+	/**
+	 * @return a population of the problem with the weights of the solutions
+	 */
+	private static List<DoubleSolution> population(AntiSpamFilterProblem problem, double[][] solutions) {
+		List<DoubleSolution> population = new ArrayList<>();
+		for (double[] weights : solutions) {
+			DoubleSolution solution = problem.createSolution();
+			for (int r = 0; r < weights.length; r++) {
+				solution.setVariableValue(r, weights[r]);
+			}
+			population.add(solution);
+		}
+		return population;
+	}
+
+	/**
+	 * Creates the problem, in memory and streaming, with a ham.log that doesn't exist. To test this it was
+	 * verified if the constructor fails with the FileNotFoundException of the log as the cause.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testMissingLog() throws IOException {
+		String[] paths = files.generate("problem", 10, 10, 3);
+		String missing = new File(files.directory("missing"), "ham.log").getPath();
+		for (boolean streaming : new boolean[] { false, true }) {
+			try {
+				new AntiSpamFilterProblem(10, paths[0], missing, paths[2], streaming);
+				fail("failure - missing ham.log should not be read");
+			} catch (UncheckedIOException e) {
+				assertTrue("failure - cause should be the missing log", e.getCause() instanceof FileNotFoundException);
+			}
+		}
+	}
+
+	/**
+	 * Evaluates a population with a streaming problem and closes it. To test this it was verified if FP and FN
+	 * are the same as the ones of the whole corpus and if the streaming corpus can't be read after close().
+	 * @throws IOException
+	 */
+	@Test
+	public final void testClose() throws IOException {
+		String[] paths = files.generate("problem", 20, 200, 5);
+		ArrayList<String> rules = Functions.get_rules(paths[0]);
+		CompiledCorpus corpus = LogParser.parse(rules, paths[1], paths[2]);
+		double[][] solutions = TestCorpus.population(5, rules.size(), 11);
+
+		AntiSpamFilterProblem problem = new AntiSpamFilterProblem(rules.size(), paths[0], paths[1], paths[2], true);
+		List<DoubleSolution> population = population(problem, solutions);
+		problem.evaluate(population);
+		for (int p = 0; p < solutions.length; p++) {
+			assertArrayEquals(corpus.evaluate(solutions[p]),
+					new double[] { population.get(p).getObjective(0), population.get(p).getObjective(1) }, 0.0);
+		}
+
+		problem.close();
+		try {
+			problem.evaluate(population);
+			fail("failure - closed problem should not evaluate");
+		} catch (UncheckedIOException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Evaluates, through the solution list evaluator of NSGA-II, a population of 20 solutions that each differ
+	 * from the first in one rule, with and without incremental evaluation. To test this it was verified if with
+	 * it only the first solution scans the whole corpus and the others are evaluated incrementally, and if FP and
+	 * FN are the same as the ones of the whole corpus either way.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testIncrementalEvaluation() throws IOException {
+		String[] paths = files.generate("problem", 100, 2000, 7);
+		ArrayList<String> rules = Functions.get_rules(paths[0]);
+		CompiledCorpus corpus = LogParser.parse(rules, paths[1], paths[2]);
+		double[][] solutions = new double[20][];
+		solutions[0] = TestCorpus.population(1, rules.size(), 13)[0];
+		for (int p = 1; p < solutions.length; p++) {
+			solutions[p] = solutions[0].clone();
+			solutions[p][rules.size() - p] = -solutions[0][rules.size() - p];
+		}
+
+		AntiSpamFilterProblem problem = new AntiSpamFilterProblem(rules.size(), paths[0], paths[1], paths[2]);
+		AntiSpamFilterSolutionListEvaluator evaluator = new AntiSpamFilterSolutionListEvaluator();
+		List<DoubleSolution> full = evaluator.evaluate(population(problem, solutions), problem);
+		assertNull(problem.getIncrementalEvaluator());
+
+		problem.setIncrementalEvaluation(4);
+		List<DoubleSolution> population = evaluator.evaluate(population(problem, solutions), problem);
+		assertEquals(1, problem.getIncrementalEvaluator().getFullEvaluations());
+		assertEquals(solutions.length - 1, problem.getIncrementalEvaluator().getIncrementalEvaluations());
+		for (int p = 0; p < solutions.length; p++) {
+			double[] expected = corpus.evaluate(solutions[p]);
+			assertEquals(expected[0], population.get(p).getObjective(0), 0.0);
+			assertEquals(expected[1], population.get(p).getObjective(1), 0.0);
+			assertEquals(expected[0], full.get(p).getObjective(0), 0.0);
+			assertEquals(expected[1], full.get(p).getObjective(1), 0.0);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package antiSpamFilter;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import org.uma.jmetal.problem.Problem;
+import org.uma.jmetal.solution.DoubleSolution;
+import org.uma.jmetal.util.evaluator.SolutionListEvaluator;
+
+/**
+ * Evaluates the populations of NSGA-II in one pass over the corpus, instead of one pass per solution.
+ * Problems other than AntiSpamFilterProblem are evaluated solution by solution.
+ * If it has an OptimizationProgress, it is updated after each population, and a cancelled progress stops
+ * the run with a CancellationException.
+ * The offspring of a population can be screened against it first (see AntiSpamFilterProblem.evaluateOffspring()).
+ */
+public class AntiSpamFilterSolutionListEvaluator implements SolutionListEvaluator<DoubleSolution> {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 4165308871346211925L;
+
+	private final transient OptimizationProgress progress;
+
+	public AntiSpamFilterSolutionListEvaluator() {
+		this(null);
+	}
+
+	/**
+	 * @param progress updated after each population, null for none
+	 */
+	public AntiSpamFilterSolutionListEvaluator(OptimizationProgress progress) {
+		this.progress = progress;
+	}
+
+	@Override
+	public List<DoubleSolution> evaluate(List<DoubleSolution> solutionList, Problem<DoubleSolution> problem) {
+		return evaluate(solutionList, problem, null);
+	}
+
+	/**
+	 * @param solutionList solutions to evaluate
+	 * @param problem of the solutions
+	 * @param population evaluated solutions the offspring in solutionList are screened against, null to evaluate
+	 * them all in full
+	 * @return solutionList, evaluated
+	 */
+	public List<DoubleSolution> evaluate(List<DoubleSolution> solutionList, Problem<DoubleSolution> problem,
+			List<DoubleSolution> population) {
+		if (progress != null && progress.isCancelled()) {
+			throw new CancellationException("Optimization cancelled");
+		}
+		if (problem instanceof AntiSpamFilterProblem) {
+			if (population != null) {
+				((AntiSpamFilterProblem) problem).evaluateOffspring(solutionList, population);
+			} else {
+				((AntiSpamFilterProblem) problem).evaluate(solutionList);
+			}
+		} else {
+			for (DoubleSolution solution : solutionList) {
+				problem.evaluate(solution);
+			}
+		}
+		if (progress != null) {
+			progress.update(solutionList);
+		}
+		return solutionList;
+	}
+
+	@Override
+	public void shutdown() {
+	}
+
+}
@@ -0,0 +1,177 @@
+package antiSpamFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+import org.uma.jmetal.util.pseudorandom.JMetalRandom;
+import org.uma.jmetal.util.pseudorandom.PseudoRandomGenerator;
+
+/**
+ * <p> State of a NSGA-II run, written every few generations so the run can be resumed if the JVM dies (see
+ * AntiSpamFilterNSGAII): the variables and objectives of the population, the evaluations and generations done,
+ * whether the run already ended, and the state of the random numbers of jMetal.
+ * <p> Binary format (big endian): magic "ASCP", version, finished, evaluations, generation, population size,
+ * number of variables, the variables and then the objectives of each solution, the length and bytes of the
+ * serialized random generator and the CRC32 of everything before it. It is written to a temporary file that
+ * then replaces the checkpoint, so a checkpoint is never left half written.
+ */
+public class Checkpoint {
+
+	/**
+	 * Extension of the checkpoint files
+	 */
+	public static final String EXTENSION = ".ckpt";
+
+	private static final int MAGIC = 0x41534350; // ASCP
+	private static final int VERSION = 1;
+
+	final boolean finished;
+	final int evaluations;
+	final int generation;
+	final double[][] variables;
+	final double[][] objectives;
+	final byte[] random;
+
+	/**
+	 * @param finished true if the run ended (its population is the final one)
+	 * @param evaluations done by the run
+	 * @param generation of the population
+	 * @param variables of each solution of the population
+	 * @param objectives {FP, FN} of each solution of the population
+	 * @param random serialized random generator (see save_random()), empty if it could not be saved
+	 */
+	public Checkpoint(boolean finished, int evaluations, int generation, double[][] variables, double[][] objectives,
+			byte[] random) {
+		this.finished = finished;
+		this.evaluations = evaluations;
+		this.generation = generation;
+		this.variables = variables;
+		this.objectives = objectives;
+		this.random = random;
+	}
+
+	/**
+	 * Writes the checkpoint, replacing the previous one
+	 *
+	 * @param file of the checkpoint
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException {
+		int nVariables = variables.length == 0 ? 0 : variables[0].length;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+				32 + 8 * variables.length * (nVariables + 2) + random.length);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeBoolean(finished);
+		out.writeInt(evaluations);
+		out.writeInt(generation);
+		out.writeInt(variables.length);
+		out.writeInt(nVariables);
+		for (double[] solution : variables) {
+			for (double variable : solution) {
+				out.writeDouble(variable);
+			}
+		}
+		for (double[] fx : objectives) {
+			out.writeDouble(fx[0]);
+			out.writeDouble(fx[1]);
+		}
+		out.writeInt(random.length);
+		out.write(random);
+		CRC32 crc = new CRC32();
+		crc.update(bytes.toByteArray());
+		out.writeLong(crc.getValue());
+
+		File tmp = new File(file.getPath() + ".tmp");
+		try (FileOutputStream fos = new FileOutputStream(tmp)) {
+			bytes.writeTo(fos);
+			fos.getFD().sync();
+		}
+		CorpusCache.replace(tmp, file);
+	}
+
+	/**
+	 * Reads a checkpoint
+	 *
+	 * @param file of the checkpoint
+	 * @return the checkpoint, null if there is none or it is damaged
+	 */
+	public static Checkpoint read(File file) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			byte[] bytes = Files.readAllBytes(file.toPath());
+			CRC32 crc = new CRC32();
+			crc.update(bytes, 0, Math.max(bytes.length - 8, 0));
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+			if (bytes.length < 8 || in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("not a checkpoint");
+			}
+			boolean finished = in.readBoolean();
+			int evaluations = in.readInt();
+			int generation = in.readInt();
+			int size = in.readInt();
+			int nVariables = in.readInt();
+			double[][] variables = new double[size][nVariables];
+			double[][] objectives = new double[size][2];
+			for (double[] solution : variables) {
+				for (int i = 0; i < nVariables; i++) {
+					solution[i] = in.readDouble();
+				}
+			}
+			for (double[] fx : objectives) {
+				fx[0] = in.readDouble();
+				fx[1] = in.readDouble();
+			}
+			byte[] random = new byte[in.readInt()];
+			in.readFully(random);
+			if (in.readLong() != crc.getValue()) {
+				throw new IOException("wrong checksum");
+			}
+			return new Checkpoint(finished, evaluations, generation, variables, objectives, random);
+		} catch (IOException | RuntimeException e) {
+			System.out.println("WARNING: damaged checkpoint " + file + ", starting the run again");
+			return null;
+		}
+	}
+
+	/**
+	 * @return the random generator of jMetal serialized, empty if it can't be serialized
+	 */
+	public static byte[] save_random() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(JMetalRandom.getInstance().getRandomGenerator());
+		} catch (IOException e) {
+			return new byte[0];
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Makes jMetal use the random generator saved by save_random()
+	 *
+	 * @param random serialized random generator, nothing is done if empty
+	 */
+	public static void restore_random(byte[] random) {
+		if (random.length == 0) {
+			return;
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(random))) {
+			JMetalRandom.getInstance().setRandomGenerator((PseudoRandomGenerator) in.readObject());
+		} catch (IOException | ClassNotFoundException e) {
+			System.out.println("WARNING: could not restore the random numbers of the checkpoint");
+		}
+	}
+}
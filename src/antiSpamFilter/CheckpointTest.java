@@ -0,0 +1,72 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class CheckpointTest {
+
+	private final TestCorpus files = new TestCorpus();
+
+	/**
+	 * Deletes the temporary files of the test
+	 */
+	@After
+	public void deleteFiles() {
+		files.delete();
+	}
+
+	/**
+	 * Writes a checkpoint and reads it back. To test this it was verified if every field is the same and if a
+	 * second checkpoint replaces the first.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testWriteRead() throws IOException {
+		File file = new File(files.directory("checkpoint"), "NSGAII.run0" + Checkpoint.EXTENSION);
+		double[][] variables = { { 1.5, -2.0, 4.75 }, { 0.0, 5.0, -5.0 } };
+		double[][] objectives = { { 10, 20 }, { 30, 5 } };
+		new Checkpoint(false, 1200, 11, variables, objectives, new byte[] { 1, 2, 3 }).write(file);
+
+		Checkpoint checkpoint = Checkpoint.read(file);
+		assertNotNull(checkpoint);
+		assertFalse(checkpoint.finished);
+		assertEquals(1200, checkpoint.evaluations);
+		assertEquals(11, checkpoint.generation);
+		for (int p = 0; p < variables.length; p++) {
+			assertTrue(Arrays.equals(variables[p], checkpoint.variables[p]));
+			assertTrue(Arrays.equals(objectives[p], checkpoint.objectives[p]));
+		}
+		assertTrue(Arrays.equals(new byte[] { 1, 2, 3 }, checkpoint.random));
+
+		new Checkpoint(true, 2000, 19, variables, objectives, new byte[0]).write(file);
+		checkpoint = Checkpoint.read(file);
+		assertTrue(checkpoint.finished);
+		assertEquals(2000, checkpoint.evaluations);
+		assertEquals(0, checkpoint.random.length);
+		assertFalse("failure - temporary file should be gone", new File(file.getPath() + ".tmp").exists());
+	}
+
+	/**
+	 * Reads a missing and a damaged checkpoint. To test this it was verified if both are ignored.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testDamaged() throws IOException {
+		File file = new File(files.directory("checkpoint"), "NSGAII.run0" + Checkpoint.EXTENSION);
+		assertNull(Checkpoint.read(file));
+
+		new Checkpoint(false, 100, 1, new double[][] { { 1, 2 } }, new double[][] { { 3, 4 } }, new byte[0]).write(file);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(30);
+			raf.write(0x7f);
+		}
+		assertNull(Checkpoint.read(file));
+	}
+}
@@ -0,0 +1,690 @@
+package antiSpamFilter;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p> ham.log and spam.log compiled into a compressed sparse row (CSR) matrix.
+ * <p> Every distinct email is a row. The rule indexes (in rules.cf) of all rows are stored one after the other
+ * in ruleIds, and row e goes from rowOffsets[e] to rowOffsets[e + 1]. A bitmap tells which rows are spam.
+ * This keeps the whole corpus in two int arrays, so an evaluation is one sequential pass over contiguous memory.
+ * <p> Emails of the same log that break exactly the same rules (in the same order) are kept only once, with
+ * the number of times they appear in rowCounts, and count that many times to FP/FN.
+ */
+public class CompiledCorpus {
+
+	/**
+	 * Score above which an email is classified as spam
+	 */
+	public static final double SPAM_THRESHOLD = 5.0;
+
+	// Reused by evaluatePopulation(solutions, size, threshold, fx), one per thread
+	private static final ThreadLocal<PopulationBuffers> POPULATION_BUFFERS = ThreadLocal
+			.withInitial(PopulationBuffers::new);
+
+	private final int nRules;
+	private final int[] ruleIds;
+	private final int[] rowOffsets;
+	private final long[] spamLabels;
+	private final int[] rowCounts;
+	private final int nEmails;
+	private int[] ruleOffsets;
+	private int[] ruleEmails;
+
+	/**
+	 * Compiles the results of file_to_array() on ham.log and spam.log against the rules of rules.cf.
+	 * Rules that are not in rules.cf are dropped, since they never count to the score.
+	 *
+	 * @param rules inside rules.cf (result of get_rules())
+	 * @param ham_result result of file_to_array() on ham.log
+	 * @param spam_result result of file_to_array() on spam.log
+	 */
+	public CompiledCorpus(ArrayList<String> rules, ArrayList<ArrayList<String>> ham_result,
+			ArrayList<ArrayList<String>> spam_result) {
+		this(compile(rules, ham_result, spam_result).build());
+	}
+
+	/**
+	 * Takes over the arrays of a corpus that was just built
+	 */
+	private CompiledCorpus(CompiledCorpus built) {
+		this(built.nRules, built.nEmails, built.ruleIds, built.rowOffsets, built.spamLabels, built.rowCounts);
+	}
+
+	private static Builder compile(ArrayList<String> rules, ArrayList<ArrayList<String>> ham_result,
+			ArrayList<ArrayList<String>> spam_result) {
+		HashMap<String, Integer> index = Functions.rules_index(rules);
+		int hits = 0;
+		for (ArrayList<String> line : ham_result) {
+			hits += line.size();
+		}
+		for (ArrayList<String> line : spam_result) {
+			hits += line.size();
+		}
+
+		Builder builder = new Builder(rules.size(), ham_result.size() + spam_result.size(), hits);
+		for (int type = 0; type < 2; type++) {
+			for (ArrayList<String> line : type == 0 ? ham_result : spam_result) {
+				for (String rule : line) {
+					Integer id = index.get(rule);
+					if (id != null) {
+						builder.add(id);
+					}
+				}
+				builder.endEmail(type == 1);
+			}
+		}
+		return builder;
+	}
+
+	/**
+	 * Creates a corpus from arrays that were already compiled (see CorpusCache)
+	 */
+	CompiledCorpus(int nRules, int nEmails, int[] ruleIds, int[] rowOffsets, long[] spamLabels, int[] rowCounts) {
+		this.nRules = nRules;
+		this.nEmails = nEmails;
+		this.ruleIds = ruleIds;
+		this.rowOffsets = rowOffsets;
+		this.spamLabels = spamLabels;
+		this.rowCounts = rowCounts;
+	}
+
+	/**
+	 * Reads and compiles rules.cf, ham.log and spam.log
+	 *
+	 * @param rules_path of rules.cf
+	 * @param ham_path of ham.log
+	 * @param spam_path of spam.log
+	 * @return the compiled corpus
+	 * @throws FileNotFoundException
+	 */
+	public static CompiledCorpus load(String rules_path, String ham_path, String spam_path)
+			throws FileNotFoundException {
+		return new CompiledCorpus(Functions.get_rules(rules_path), Functions.file_to_array(ham_path),
+				Functions.file_to_array(spam_path));
+	}
+
+	/**
+	 * Evaluates the weights in a single pass over the corpus, counting FP on the ham emails and FN on
+	 * the spam emails.
+	 *
+	 * @param weights weight of each rule, in the order of rules.cf
+	 * @return {FP, FN}
+	 */
+	public double[] evaluate(double[] weights) {
+		return evaluate(weights, 0);
+	}
+
+	/**
+	 * Evaluates the weights, splitting the corpus in shards of at most threshold rows that are counted in
+	 * parallel (see ShardTask). With threshold 0, or a corpus smaller than threshold, it is sequential.
+	 *
+	 * @param weights weight of each rule, in the order of rules.cf
+	 * @param threshold maximum number of rows counted by a single task, 0 to stay sequential
+	 * @return {FP, FN}
+	 */
+	public double[] evaluate(double[] weights, int threshold) {
+		double[] fx = new double[2];
+		evaluate(weights, threshold, fx);
+		return fx;
+	}
+
+	/**
+	 * Evaluates the weights like evaluate(weights, threshold), writing {FP, FN} to fx. When it is sequential
+	 * nothing is allocated, so it can be called once per solution without creating garbage.
+	 *
+	 * @param weights weight of each rule, in the order of rules.cf
+	 * @param threshold maximum number of rows counted by a single task, 0 to stay sequential
+	 * @param fx array where {FP, FN} is written
+	 */
+	public void evaluate(double[] weights, int threshold, double[] fx) {
+		int nRows = getNumberOfRows();
+		if (threshold <= 0 || nRows <= threshold) {
+			long count = count(weights, 0, nRows);
+			fx[0] = (int) (count >>> 32);
+			fx[1] = (int) count;
+		} else {
+			int[] count = ForkJoinPool.commonPool().invoke(new ShardTask(weights, 1, 0, nRows, threshold));
+			fx[0] = count[0];
+			fx[1] = count[1];
+		}
+	}
+
+	/**
+	 * <p> Evaluates a whole population in a single pass over the corpus.
+	 * <p> The weights are laid out rule by rule (the weights of rule r for every solution are side by side),
+	 * so each rule hit of an email adds to the scores of all solutions at once. The weights of each solution
+	 * are still added in the same order as evaluate(), so the results are the same.
+	 *
+	 * @param solutions weights of each solution, in the order of rules.cf
+	 * @return {FP, FN} of each solution
+	 */
+	public double[][] evaluatePopulation(double[][] solutions) {
+		return evaluatePopulation(solutions, 0);
+	}
+
+	/**
+	 * Evaluates a whole population, splitting the corpus in shards of at most threshold rows that are
+	 * counted in parallel (see ShardTask). With threshold 0, or a corpus smaller than threshold, it is sequential.
+	 *
+	 * @param solutions weights of each solution, in the order of rules.cf
+	 * @param threshold maximum number of rows counted by a single task, 0 to stay sequential
+	 * @return {FP, FN} of each solution
+	 */
+	public double[][] evaluatePopulation(double[][] solutions, int threshold) {
+		int size = solutions.length;
+		return falseValues(countPopulation(transpose(solutions, nRules), size, threshold), size);
+	}
+
+	/**
+	 * Evaluates the first size solutions like evaluatePopulation(solutions, threshold), writing {FP, FN} of
+	 * solution p to fx[p]. When it is sequential it only allocates the buffers of the calling thread, the first
+	 * time and when the population grows, so it can be called every generation without creating garbage.
+	 *
+	 * @param solutions weights of each solution, in the order of rules.cf (only the first size are read)
+	 * @param size number of solutions
+	 * @param threshold maximum number of rows counted by a single task, 0 to stay sequential
+	 * @param fx arrays where {FP, FN} of each solution is written
+	 */
+	public void evaluatePopulation(double[][] solutions, int size, int threshold, double[][] fx) {
+		PopulationBuffers buffers = POPULATION_BUFFERS.get();
+		buffers.ensure(size, nRules);
+		transpose(solutions, size, nRules, buffers.matrix);
+		int nRows = getNumberOfRows();
+		int[] count;
+		if (threshold <= 0 || nRows <= threshold) {
+			count = countPopulation(buffers.matrix, size, 0, nRows, buffers.count, buffers.sums);
+		} else {
+			count = ForkJoinPool.commonPool().invoke(new ShardTask(buffers.matrix, size, 0, nRows, threshold));
+		}
+		for (int p = 0; p < size; p++) {
+			fx[p][0] = count[p];
+			fx[p][1] = count[size + p];
+		}
+	}
+
+	/**
+	 * Lays out the weights of the solutions rule by rule: matrix[r * size + p] is the weight of rule r in
+	 * solution p.
+	 *
+	 * @param solutions weights of each solution, in the order of rules.cf
+	 * @param nRules number of rules in rules.cf
+	 * @return the weights laid out rule by rule
+	 */
+	static double[] transpose(double[][] solutions, int nRules) {
+		double[] matrix = new double[nRules * solutions.length];
+		transpose(solutions, solutions.length, nRules, matrix);
+		return matrix;
+	}
+
+	/**
+	 * Lays out the weights of the first size solutions rule by rule into matrix, like transpose(solutions, nRules)
+	 */
+	static void transpose(double[][] solutions, int size, int nRules, double[] matrix) {
+		for (int p = 0; p < size; p++) {
+			double[] solution = solutions[p];
+			for (int r = 0; r < nRules; r++) {
+				matrix[r * size + p] = solution[r];
+			}
+		}
+	}
+
+	/**
+	 * Counts FP and FN of size solutions, laid out rule by rule in matrix, on the whole corpus
+	 *
+	 * @param threshold maximum number of rows counted by a single task, 0 to stay sequential
+	 * @return FP of each solution followed by FN of each solution
+	 */
+	int[] countPopulation(double[] matrix, int size, int threshold) {
+		int nRows = getNumberOfRows();
+		if (threshold <= 0 || nRows <= threshold) {
+			return countPopulation(matrix, size, 0, nRows);
+		}
+		return ForkJoinPool.commonPool().invoke(new ShardTask(matrix, size, 0, nRows, threshold));
+	}
+
+	/**
+	 * @param count FP of each solution followed by FN of each solution
+	 * @param size number of solutions
+	 * @return {FP, FN} of each solution
+	 */
+	static double[][] falseValues(int[] count, int size) {
+		double[][] fx = new double[size][];
+		for (int p = 0; p < size; p++) {
+			fx[p] = new double[] { count[p], count[size + p] };
+		}
+		return fx;
+	}
+
+	/**
+	 * Counts FP and FN of one solution on the rows from (inclusive) to (exclusive)
+	 *
+	 * @return FP in the high 32 bits and FN in the low 32 bits (so no array is allocated)
+	 */
+	private long count(double[] weights, int from, int to) {
+		int fp = 0;
+		int fn = 0;
+		int start = rowOffsets[from];
+		for (int e = from; e < to; e++) {
+			int end = rowOffsets[e + 1];
+			double sum = 0.0;
+			for (int i = start; i < end; i++) {
+				sum += weights[ruleIds[i]];
+			}
+			start = end;
+
+			if ((spamLabels[e >>> 6] & (1L << e)) == 0) {
+				if (sum > SPAM_THRESHOLD) { // FP
+					fp += rowCounts[e];
+				}
+			} else {
+				if (sum < SPAM_THRESHOLD) { // FN
+					fn += rowCounts[e];
+				}
+			}
+		}
+		return ((long) fp << 32) | fn;
+	}
+
+	/**
+	 * Counts FP and FN of size solutions, laid out rule by rule in matrix, on the rows from (inclusive)
+	 * to (exclusive)
+	 *
+	 * @return FP of each solution followed by FN of each solution
+	 */
+	private int[] countPopulation(double[] matrix, int size, int from, int to) {
+		return countPopulation(matrix, size, from, to, new int[2 * size], new double[size]);
+	}
+
+	/**
+	 * Counts like countPopulation(matrix, size, from, to) into count, with sums as the scores of the row
+	 *
+	 * @param count array of at least 2 size counts, cleared first
+	 * @param sums array of at least size scores
+	 * @return count
+	 */
+	private int[] countPopulation(double[] matrix, int size, int from, int to, int[] count, double[] sums) {
+		Arrays.fill(count, 0, 2 * size, 0);
+		int start = rowOffsets[from];
+		for (int e = from; e < to; e++) {
+			int end = rowOffsets[e + 1];
+			Arrays.fill(sums, 0, size, 0.0);
+			for (int i = start; i < end; i++) {
+				int base = ruleIds[i] * size;
+				for (int p = 0; p < size; p++) {
+					sums[p] += matrix[base + p];
+				}
+			}
+			start = end;
+
+			if ((spamLabels[e >>> 6] & (1L << e)) == 0) {
+				for (int p = 0; p < size; p++) {
+					if (sums[p] > SPAM_THRESHOLD) { // FP
+						count[p] += rowCounts[e];
+					}
+				}
+			} else {
+				for (int p = 0; p < size; p++) {
+					if (sums[p] < SPAM_THRESHOLD) { // FN
+						count[size + p] += rowCounts[e];
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Computes the score of one row, adding the weights of its rules in the same order as evaluate()
+	 *
+	 * @param e index of the row
+	 * @param weights weight of each rule, in the order of rules.cf
+	 * @return score of the emails of the row
+	 */
+	public double score(int e, double[] weights) {
+		double sum = 0.0;
+		for (int i = rowOffsets[e]; i < rowOffsets[e + 1]; i++) {
+			sum += weights[ruleIds[i]];
+		}
+		return sum;
+	}
+
+	/**
+	 * <p> Builds the inverted index of the corpus (rule -> rows that break it), the first time it is needed.
+	 * <p> It is stored like the rows: the rows of rule r go from ruleOffsets[r] to ruleOffsets[r + 1] in
+	 * ruleEmails.
+	 */
+	synchronized void buildInvertedIndex() {
+		if (ruleOffsets != null) {
+			return;
+		}
+		int[] offsets = new int[nRules + 1];
+		for (int id : ruleIds) {
+			offsets[id + 1]++;
+		}
+		for (int r = 0; r < nRules; r++) {
+			offsets[r + 1] += offsets[r];
+		}
+
+		int[] emails = new int[ruleIds.length];
+		int[] next = Arrays.copyOf(offsets, nRules);
+		for (int e = 0; e < getNumberOfRows(); e++) {
+			for (int i = rowOffsets[e]; i < rowOffsets[e + 1]; i++) {
+				emails[next[ruleIds[i]]++] = e;
+			}
+		}
+		ruleEmails = emails;
+		ruleOffsets = offsets;
+	}
+
+	/**
+	 * @param e index of the row
+	 * @return true if the emails of the row came from spam.log
+	 */
+	public boolean isSpam(int e) {
+		return (spamLabels[e >>> 6] & (1L << e)) != 0;
+	}
+
+	/**
+	 * @param e index of the row
+	 * @return number of emails of the row
+	 */
+	public int getCount(int e) {
+		return rowCounts[e];
+	}
+
+	/**
+	 * @return number of emails (ham and spam)
+	 */
+	public int getNumberOfEmails() {
+		return nEmails;
+	}
+
+	/**
+	 * @return number of distinct emails (rows)
+	 */
+	public int getNumberOfRows() {
+		return rowOffsets.length - 1;
+	}
+
+	/**
+	 * @return number of rules in rules.cf
+	 */
+	public int getNumberOfRules() {
+		return nRules;
+	}
+
+	/**
+	 * @return total number of rule hits in the corpus
+	 */
+	public int getNumberOfHits() {
+		return ruleIds.length;
+	}
+
+	int[] getRuleIds() {
+		return ruleIds;
+	}
+
+	int[] getRowOffsets() {
+		return rowOffsets;
+	}
+
+	long[] getSpamLabels() {
+		return spamLabels;
+	}
+
+	int[] getRowCounts() {
+		return rowCounts;
+	}
+
+	int[] getRuleOffsets() {
+		buildInvertedIndex();
+		return ruleOffsets;
+	}
+
+	int[] getRuleEmails() {
+		buildInvertedIndex();
+		return ruleEmails;
+	}
+
+	/**
+	 * Counts FP and FN on a shard of the corpus, splitting it in two halves counted in parallel while it
+	 * has more than threshold rows. The counts of the halves are added, so the result is the same as
+	 * the sequential one.
+	 */
+	private class ShardTask extends RecursiveTask<int[]> {
+
+		private static final long serialVersionUID = -2893465530172405416L;
+
+		private final double[] matrix;
+		private final int size;
+		private final int from;
+		private final int to;
+		private final int threshold;
+
+		/**
+		 * @param matrix weights laid out rule by rule (with size 1 it is the weights of the solution)
+		 * @param size number of solutions
+		 * @param from first row (inclusive)
+		 * @param to last row (exclusive)
+		 * @param threshold maximum number of rows counted without splitting
+		 */
+		ShardTask(double[] matrix, int size, int from, int to, int threshold) {
+			this.matrix = matrix;
+			this.size = size;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected int[] compute() {
+			if (to - from <= threshold) {
+				if (size == 1) {
+					long count = count(matrix, from, to);
+					return new int[] { (int) (count >>> 32), (int) count };
+				}
+				return countPopulation(matrix, size, from, to);
+			}
+			int middle = (from + to) >>> 1;
+			ShardTask left = new ShardTask(matrix, size, from, middle, threshold);
+			left.fork();
+			int[] count = new ShardTask(matrix, size, middle, to, threshold).compute();
+			int[] leftCount = left.join();
+			for (int i = 0; i < count.length; i++) {
+				count[i] += leftCount[i];
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Transposed weights, counts and scores of a population, grown to the largest population evaluated
+	 */
+	private static final class PopulationBuffers {
+		double[] matrix = new double[0];
+		int[] count = new int[0];
+		double[] sums = new double[0];
+
+		void ensure(int size, int nRules) {
+			if (matrix.length < nRules * size) {
+				matrix = new double[nRules * size];
+			}
+			if (sums.length < size) {
+				count = new int[2 * size];
+				sums = new double[size];
+			}
+		}
+	}
+
+	/**
+	 * Builds a corpus email by email: the rule indexes of an email are given with add() and the email is
+	 * closed with endEmail(). Repeated emails of the same log are kept only once, with a count.
+	 */
+	static class Builder implements LogParser.Sink {
+
+		private final int nRules;
+		private int[] ids;
+		private int size = 0;
+		private int[] offsets;
+		private long[] labels;
+		private int[] counts;
+		private int[] hashes;
+		private int rows = 0;
+		private int nEmails = 0;
+
+		// Open addressing table of the rows, to find repeated emails
+		private int[] table;
+
+		/**
+		 * Starts with room for 1024 emails and 16384 rule hits, growing the arrays as they fill up
+		 *
+		 * @param nRules number of rules in rules.cf
+		 */
+		Builder(int nRules) {
+			this(nRules, 1 << 10, 1 << 14);
+		}
+
+		/**
+		 * @param nRules number of rules in rules.cf
+		 * @param expectedEmails number of emails expected, to size the arrays
+		 * @param expectedHits number of rule hits expected, to size the arrays
+		 */
+		Builder(int nRules, int expectedEmails, int expectedHits) {
+			this.nRules = nRules;
+			int capacity = Math.max(expectedEmails, 16);
+			this.ids = new int[Math.max(expectedHits, 16)];
+			this.offsets = new int[capacity + 1];
+			this.labels = new long[(capacity + 63) >>> 6];
+			this.counts = new int[capacity];
+			this.hashes = new int[capacity];
+			this.table = new int[Integer.highestOneBit(capacity) << 2];
+			Arrays.fill(table, -1);
+		}
+
+		/**
+		 * Adds a rule index to the email being built
+		 */
+		@Override
+		public void add(int id) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			ids[size++] = id;
+		}
+
+		/**
+		 * Closes the email being built, as a new row or as one more email of a repeated row
+		 *
+		 * @param spam true if the email came from spam.log
+		 */
+		@Override
+		public void endEmail(boolean spam) {
+			nEmails++;
+			int start = offsets[rows];
+			int hash = spam ? 1 : 0;
+			for (int i = start; i < size; i++) {
+				hash = 31 * hash + ids[i];
+			}
+
+			int mask = table.length - 1;
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			while (table[slot] != -1) {
+				int e = table[slot];
+				if (hashes[e] == hash && sameRow(e, start, spam)) {
+					counts[e]++;
+					size = start;
+					return;
+				}
+				slot = (slot + 1) & mask;
+			}
+
+			if (rows == counts.length) {
+				int capacity = rows * 2;
+				offsets = Arrays.copyOf(offsets, capacity + 1);
+				labels = Arrays.copyOf(labels, (capacity + 63) >>> 6);
+				counts = Arrays.copyOf(counts, capacity);
+				hashes = Arrays.copyOf(hashes, capacity);
+			}
+			table[slot] = rows;
+			hashes[rows] = hash;
+			counts[rows] = 1;
+			if (spam) {
+				labels[rows >>> 6] |= 1L << rows;
+			}
+			offsets[++rows] = size;
+
+			if (rows * 2 > table.length) {
+				rehash();
+			}
+		}
+
+		/**
+		 * Checks if row e has the label and the rule indexes ids[start..size[
+		 */
+		private boolean sameRow(int e, int start, boolean spam) {
+			if (((labels[e >>> 6] & (1L << e)) != 0) != spam || offsets[e + 1] - offsets[e] != size - start) {
+				return false;
+			}
+			for (int i = offsets[e], j = start; j < size; i++, j++) {
+				if (ids[i] != ids[j]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void rehash() {
+			table = new int[table.length * 2];
+			Arrays.fill(table, -1);
+			int mask = table.length - 1;
+			for (int e = 0; e < rows; e++) {
+				int slot = (hashes[e] ^ (hashes[e] >>> 16)) & mask;
+				while (table[slot] != -1) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = e;
+			}
+		}
+
+		/**
+		 * Hands the arrays over to the corpus, trimmed to their size. The table of the rows is dropped first and
+		 * each array is dropped as soon as it is trimmed, so the arrays are not all held twice. The builder can't
+		 * be used afterwards.
+		 *
+		 * @return the corpus built
+		 */
+		CompiledCorpus build() {
+			table = null;
+			hashes = null;
+			int[] ruleIds = ids;
+			ids = null;
+			ruleIds = trim(ruleIds, size);
+			int[] rowOffsets = offsets;
+			offsets = null;
+			rowOffsets = trim(rowOffsets, rows + 1);
+			long[] spamLabels = labels;
+			labels = null;
+			spamLabels = trim(spamLabels, (rows + 63) >>> 6);
+			int[] rowCounts = counts;
+			counts = null;
+			rowCounts = trim(rowCounts, rows);
+			return new CompiledCorpus(nRules, nEmails, ruleIds, rowOffsets, spamLabels, rowCounts);
+		}
+
+		/**
+		 * @return the array if it has the length, a copy of its first length values if not
+		 */
+		private static int[] trim(int[] array, int length) {
+			return array.length == length ? array : Arrays.copyOf(array, length);
+		}
+
+		private static long[] trim(long[] array, int length) {
+			return array.length == length ? array : Arrays.copyOf(array, length);
+		}
+	}
+}
@@ -0,0 +1,276 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import java.io.FileNotFoundException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CompiledCorpusTest {
+
+	String rules_path = "jUnitTests/TestFiles/rules.cf";
+	String ham_path = "jUnitTests/TestFiles/ham.log";
+	String spam_path = "jUnitTests/TestFiles/spam.log";
+
+	/**
+	 * Reads the weights of the test rules.cf to a primitive array.
+	 * @throws FileNotFoundException
+	 */
+	private double[] testWeights() throws FileNotFoundException {
+		ArrayList<String> aux = Functions.get_weights(rules_path);
+		double[] weights = new double[aux.size()];
+		for (int i = 0; i < aux.size(); i++) {
+			weights[i] = Double.parseDouble(aux.get(i));
+		}
+		return weights;
+	}
+
+	/**
+	 * Creates a random corpus of emails, each one breaking a few of nRules rules named R0, R1, ...
+	 * @param random generator
+	 * @param nRules number of rules
+	 * @param nEmails number of emails
+	 * @return array with an array of rules in each position, like file_to_array()
+	 */
+	static ArrayList<ArrayList<String>> randomResult(Random random, int nRules, int nEmails) {
+		ArrayList<ArrayList<String>> result = new ArrayList<>();
+		for (int e = 0; e < nEmails; e++) {
+			ArrayList<String> line = new ArrayList<>();
+			int hits = random.nextInt(8);
+			for (int h = 0; h < hits; h++) {
+				line.add("R" + random.nextInt(nRules));
+			}
+			result.add(line);
+		}
+		return result;
+	}
+
+	/**
+	 * Creates the rules R0, R1, ... of randomResult()
+	 * @param nRules number of rules
+	 * @return rules
+	 */
+	static ArrayList<String> randomRules(int nRules) {
+		ArrayList<String> rules = new ArrayList<>();
+		for (int r = 0; r < nRules; r++) {
+			rules.add("R" + r);
+		}
+		return rules;
+	}
+
+	/**
+	 * Compiles the test ham.log and spam.log. To test this it was verified if the rows, the rule indexes and
+	 * the spam labels of the compiled corpus are the ones expected from the test files.
+	 * @throws FileNotFoundException
+	 */
+	@Test
+	public final void testLoad() throws FileNotFoundException {
+		CompiledCorpus corpus = CompiledCorpus.load(rules_path, ham_path, spam_path);
+		assertEquals("failure - number of emails should be same", 8, corpus.getNumberOfEmails());
+		assertEquals("failure - number of rows should be same", 8, corpus.getNumberOfRows());
+		assertEquals("failure - number of rules should be same", 4, corpus.getNumberOfRules());
+		assertArrayEquals("failure - rule indexes should be same", new int[] { 0, 1, 2, 1, 3, 0, 3, 0, 1, 2, 1, 3, 0, 3 },
+				corpus.getRuleIds());
+		assertArrayEquals("failure - row offsets should be same", new int[] { 0, 3, 5, 6, 7, 10, 12, 13, 14 },
+				corpus.getRowOffsets());
+		for (int e = 0; e < corpus.getNumberOfRows(); e++) {
+			assertEquals("failure - label should be same", e >= 4, corpus.isSpam(e));
+			assertEquals("failure - count should be same", 1, corpus.getCount(e));
+		}
+	}
+
+	/**
+	 * Evaluates the weights of the test rules.cf in a single pass. To test this it was verified if FP and FN are
+	 * the same as the ones given by Functions.evaluate_solution().
+	 * @throws FileNotFoundException
+	 */
+	@Test
+	public final void testEvaluate() throws FileNotFoundException {
+		CompiledCorpus corpus = CompiledCorpus.load(rules_path, ham_path, spam_path);
+		assertArrayEquals("failure - FP/FN should be same", new double[] { 2.0, 2.0 }, corpus.evaluate(testWeights()), 0.0);
+	}
+
+	/**
+	 * Evaluates a sequence of solutions where each one changes a few weights of a previous one. To test this it
+	 * was verified if the incremental evaluation gives the same FP/FN as the full evaluation, and that most of
+	 * the evaluations were incremental.
+	 */
+	@Test
+	public final void testIncrementalEvaluator() {
+		Random random = new Random(21);
+		int nRules = 200;
+		CompiledCorpus corpus = new CompiledCorpus(randomRules(nRules), randomResult(random, nRules, 3000),
+				randomResult(random, nRules, 3000));
+		IncrementalEvaluator incremental = new IncrementalEvaluator(corpus, 4);
+
+		double[] weights = new double[nRules];
+		for (int i = 0; i < 500; i++) {
+			if (i % 100 == 0) {
+				for (int r = 0; r < nRules; r++) {
+					weights[r] = random.nextDouble() * 10 - 5;
+				}
+			} else {
+				weights[random.nextInt(nRules)] = random.nextDouble() * 10 - 5;
+			}
+			assertArrayEquals("failure - FP/FN should be same", corpus.evaluate(weights), incremental.evaluate(weights), 0.0);
+		}
+		assertEquals("failure - only new solutions should be fully evaluated", 5, incremental.getFullEvaluations());
+		assertEquals(495, incremental.getIncrementalEvaluations());
+	}
+
+	/**
+	 * Evaluates a random population in a single pass. To test this it was verified if FP/FN of every solution
+	 * are the same as the ones given by evaluating each solution on its own.
+	 */
+	@Test
+	public final void testEvaluatePopulation() {
+		Random random = new Random(21);
+		int nRules = 50;
+		CompiledCorpus corpus = new CompiledCorpus(randomRules(nRules), randomResult(random, nRules, 1000),
+				randomResult(random, nRules, 1000));
+
+		double[][] population = new double[30][nRules];
+		for (double[] weights : population) {
+			for (int r = 0; r < nRules; r++) {
+				weights[r] = random.nextDouble() * 10 - 5;
+			}
+		}
+		double[][] fx = corpus.evaluatePopulation(population);
+		for (int p = 0; p < population.length; p++) {
+			assertArrayEquals("failure - FP/FN should be same", corpus.evaluate(population[p]), fx[p], 0.0);
+		}
+	}
+
+	/**
+	 * Evaluates a random corpus split in small shards counted in parallel. To test this it was verified if
+	 * FP/FN, for one solution and for a population, are the same as the sequential ones.
+	 */
+	@Test
+	public final void testParallelEvaluate() {
+		Random random = new Random(21);
+		int nRules = 50;
+		CompiledCorpus corpus = new CompiledCorpus(randomRules(nRules), randomResult(random, nRules, 5000),
+				randomResult(random, nRules, 5000));
+
+		double[][] population = new double[10][nRules];
+		for (double[] weights : population) {
+			for (int r = 0; r < nRules; r++) {
+				weights[r] = random.nextDouble() * 10 - 5;
+			}
+		}
+		double[][] fx = corpus.evaluatePopulation(population, 333);
+		for (int p = 0; p < population.length; p++) {
+			assertArrayEquals("failure - FP/FN should be same", corpus.evaluate(population[p]), fx[p], 0.0);
+			assertArrayEquals("failure - FP/FN should be same", corpus.evaluate(population[p]),
+					corpus.evaluate(population[p], 333), 0.0);
+		}
+	}
+
+	/**
+	 * Compiles a random corpus with many repeated emails. To test this it was verified if the repeated emails
+	 * were kept only once and if FP/FN are still the same as the ones given by Functions.evaluate_solution()
+	 * on every email.
+	 */
+	@Test
+	public final void testRepeatedEmails() {
+		Random random = new Random(21);
+		int nRules = 10;
+		ArrayList<String> rules = randomRules(nRules);
+		ArrayList<ArrayList<String>> ham = randomResult(random, nRules, 2000);
+		ArrayList<ArrayList<String>> spam = randomResult(random, nRules, 2000);
+		CompiledCorpus corpus = new CompiledCorpus(rules, ham, spam);
+		assertEquals("failure - number of emails should be same", 4000, corpus.getNumberOfEmails());
+		assertTrue("failure - repeated emails should be kept once", corpus.getNumberOfRows() < 4000);
+
+		double[] weights = new double[nRules];
+		ArrayList<Double> solution = new ArrayList<>();
+		for (int r = 0; r < nRules; r++) {
+			weights[r] = random.nextDouble() * 10 - 5;
+			solution.add(weights[r]);
+		}
+		double[] expected = { Functions.evaluate_solution(0, rules, solution, ham),
+				Functions.evaluate_solution(1, rules, solution, spam) };
+		assertArrayEquals("failure - FP/FN should be same", expected, corpus.evaluate(weights), 0.0);
+		assertArrayEquals("failure - FP/FN should be same", expected,
+				new IncrementalEvaluator(corpus, 1).evaluate(weights), 0.0);
+	}
+
+	/**
+	 * Evaluates 10000 solutions into the same arrays, in full and incrementally. To test this it was verified,
+	 * with the allocated bytes counter of the thread, if nothing is allocated after warming up.
+	 */
+	@Test
+	public final void testEvaluateAllocation() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return; // no allocation counter in this JVM
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		Random random = new Random(11);
+		int nRules = 100;
+		CompiledCorpus corpus = new CompiledCorpus(randomRules(nRules), randomResult(random, nRules, 2000),
+				randomResult(random, nRules, 2000));
+		IncrementalEvaluator incremental = new IncrementalEvaluator(corpus, 4);
+		double[] weights = new double[nRules];
+		double[] fx = new double[2];
+		double[] changes = new double[10000];
+		for (int i = 0; i < changes.length; i++) {
+			changes[i] = random.nextDouble() * 10 - 5;
+		}
+
+		long allocated = 0;
+		for (int round = 0; round < 2; round++) { // the first round warms up
+			long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+			for (int i = 0; i < changes.length; i++) {
+				weights[i % nRules] = changes[i];
+				corpus.evaluate(weights, 0, fx);
+				incremental.evaluate(weights, fx);
+			}
+			allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+		}
+		assertTrue("failure - evaluating should not allocate, allocated " + allocated + " bytes", allocated < 4096);
+	}
+
+	/**
+	 * Evaluates a population of 100 solutions 200 times into the same arrays, looking each solution up in an
+	 * evaluation cache, as AntiSpamFilterProblem.evaluate(List) does. To test this it was verified if, after the
+	 * buffers of the thread are allocated, it gives the FP and FN of evaluatePopulation() and allocates nothing.
+	 */
+	@Test
+	public final void testEvaluatePopulationAllocation() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return; // no allocation counter in this JVM
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		Random random = new Random(12);
+		int nRules = 100;
+		CompiledCorpus corpus = new CompiledCorpus(randomRules(nRules), randomResult(random, nRules, 2000),
+				randomResult(random, nRules, 2000));
+		EvaluationCache cache = new EvaluationCache(10, 0);
+		double[][] solutions = TestCorpus.population(100, nRules, 12);
+		double[][] fx = new double[solutions.length][2];
+		double[][] expected = corpus.evaluatePopulation(solutions);
+
+		long allocated = 0;
+		for (int round = 0; round < 2; round++) { // the first round warms up
+			long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+			for (int i = 0; i < 200; i++) {
+				for (double[] solution : solutions) {
+					cache.get(solution, fx[0]);
+				}
+				corpus.evaluatePopulation(solutions, solutions.length, 0, fx);
+			}
+			allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+		}
+		for (int p = 0; p < solutions.length; p++) {
+			assertTrue("failure - solution " + p + " should be the same", Arrays.equals(expected[p], fx[p]));
+		}
+		assertTrue("failure - evaluating should not allocate, allocated " + allocated + " bytes", allocated < 4096);
+	}
+}
@@ -0,0 +1,627 @@
+package antiSpamFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * <p> Binary cache of a CompiledCorpus, written next to ham.log (ham.log.corpus), so ham.log and spam.log are
+ * only parsed again (by LogParser) when they change.
+ * <p> The file has a header (magic number, version, path/size/last modification of ham.log and spam.log, the
+ * rules of rules.cf the corpus was compiled against, the sizes of the arrays, the layout and a CRC32 of the
+ * header), the arrays of the corpus and a CRC32 of everything before it. It is read through FileChannel.read
+ * into heap buffers, never mapped, so the file can be replaced while the JVM runs (a mapped file cannot be
+ * replaced on Windows until the mapping is garbage collected).
+ * <p> The layout is merged (repeated emails are one row with a count, written by load()) or streamed (one row
+ * per email, written by prepare()). load() only reads a merged cache, prepare() accepts both.
+ * <p> Only the rule names are compared with rules.cf, so saving new weights does not invalidate the cache.
+ */
+public class CorpusCache {
+
+	/**
+	 * Extension added to the path of ham.log
+	 */
+	public static final String EXTENSION = ".corpus";
+
+	private static final int MAGIC = 0x41534643; // ASFC
+	private static final int VERSION = 2;
+
+	static final int BUFFER = 1 << 20; // bytes read at once
+	private static final int MAX_HEADER = 1 << 28;
+
+	/**
+	 * Returns the corpus of rules.cf, ham.log and spam.log, reading it from the cache if it is up to date or
+	 * compiling it (and writing the cache) if not.
+	 *
+	 * @param rules_path of rules.cf
+	 * @param ham_path of ham.log
+	 * @param spam_path of spam.log
+	 * @return the compiled corpus
+	 * @throws IOException
+	 */
+	public static CompiledCorpus load(String rules_path, String ham_path, String spam_path)
+			throws IOException {
+		return load(Functions.get_rules(rules_path), ham_path, spam_path);
+	}
+
+	/**
+	 * Returns the corpus of ham.log and spam.log compiled against the rules, reading it from the cache if it
+	 * is up to date and merged or compiling it (and writing the cache) if not.
+	 *
+	 * @param rules inside rules.cf (result of get_rules())
+	 * @param ham_path of ham.log
+	 * @param spam_path of spam.log
+	 * @return the compiled corpus
+	 * @throws IOException
+	 */
+	public static CompiledCorpus load(ArrayList<String> rules, String ham_path, String spam_path)
+			throws IOException {
+		File cache = new File(cache_path(ham_path));
+		File ham = new File(ham_path);
+		File spam = new File(spam_path);
+
+		if (cache.isFile()) {
+			try {
+				CompiledCorpus corpus = read(cache, rules, ham, spam);
+				if (corpus != null) {
+					return corpus;
+				}
+			} catch (IOException e) {
+				System.out.println("WARNING: damaged corpus cache " + cache + ", compiling it again");
+			}
+		}
+
+		CompiledCorpus corpus = LogParser.parse(rules, ham_path, spam_path);
+		try {
+			write(cache, corpus, rules, ham, spam);
+		} catch (IOException e) {
+			System.out.println("WARNING: could not write corpus cache " + cache);
+		}
+		return corpus;
+	}
+
+	/**
+	 * @param ham_path of ham.log
+	 * @return path of the cache of ham.log
+	 */
+	public static String cache_path(String ham_path) {
+		return ham_path + EXTENSION;
+	}
+
+	/**
+	 * Writes the corpus to the cache file (through a temporary file, so a reader never sees half a cache)
+	 *
+	 * @param cache file
+	 * @param corpus compiled from ham and spam
+	 * @param rules the corpus was compiled against
+	 * @param ham ham.log
+	 * @param spam spam.log
+	 * @throws IOException
+	 */
+	static void write(File cache, CompiledCorpus corpus, ArrayList<String> rules, File ham, File spam)
+			throws IOException {
+		File tmp = new File(cache.getPath() + ".tmp");
+		CRC32 crc = new CRC32();
+
+		try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeBuffer(channel, ByteBuffer.wrap(header(rules, ham, spam, corpus.getNumberOfEmails(),
+					corpus.getNumberOfRows(), corpus.getNumberOfHits(), true)), crc);
+
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+			for (int[] array : new int[][] { corpus.getRuleIds(), corpus.getRowOffsets(), corpus.getRowCounts() }) {
+				for (int value : array) {
+					if (buffer.remaining() < 4) {
+						buffer.flip();
+						writeBuffer(channel, buffer, crc);
+						buffer.clear();
+					}
+					buffer.putInt(value);
+				}
+			}
+			for (long value : corpus.getSpamLabels()) {
+				if (buffer.remaining() < 8) {
+					buffer.flip();
+					writeBuffer(channel, buffer, crc);
+					buffer.clear();
+				}
+				buffer.putLong(value);
+			}
+			buffer.flip();
+			writeBuffer(channel, buffer, crc);
+
+			buffer.clear();
+			buffer.putLong(crc.getValue());
+			buffer.flip();
+			channel.write(buffer);
+		}
+		replace(tmp, cache);
+	}
+
+	/**
+	 * Makes sure the cache of ham.log and spam.log is up to date, without reading it to memory. If it is not,
+	 * the logs are compiled straight to the cache file (see compile()). Any layout is up to date, and only the
+	 * header is checked (its CRC32 and the size of the file), not the CRC32 of the whole file.
+	 *
+	 * @param rules inside rules.cf (result of get_rules())
+	 * @param ham_path of ham.log
+	 * @param spam_path of spam.log
+	 * @return the cache file
+	 * @throws IOException
+	 */
+	public static File prepare(ArrayList<String> rules, String ham_path, String spam_path) throws IOException {
+		File cache = new File(cache_path(ham_path));
+		File ham = new File(ham_path);
+		File spam = new File(spam_path);
+
+		if (cache.isFile()) {
+			try (FileChannel channel = FileChannel.open(cache.toPath(), StandardOpenOption.READ)) {
+				Header header = readHeader(channel);
+				if (header != null && header.isUpToDate(rules, ham, spam)) {
+					return cache;
+				}
+			} catch (IOException | RuntimeException e) {
+				System.out.println("WARNING: damaged corpus cache " + cache + ", compiling it again");
+			}
+		}
+
+		compile(cache, rules, ham, spam);
+		return cache;
+	}
+
+	/**
+	 * <p> Compiles ham.log and spam.log straight to the cache file, so only one bit per email (the spam
+	 * labels) is kept in memory.
+	 * <p> The rule indexes are written to the cache while the logs are parsed and the row offsets to a
+	 * temporary file, appended after them at the end. Repeated emails are not merged, every row has a count
+	 * of 1 (the streamed layout).
+	 *
+	 * @param cache file
+	 * @param rules inside rules.cf (result of get_rules())
+	 * @param ham ham.log
+	 * @param spam spam.log
+	 * @throws IOException
+	 */
+	static void compile(File cache, ArrayList<String> rules, File ham, File spam) throws IOException {
+		File tmp = new File(cache.getPath() + ".tmp");
+		File offsetsTmp = new File(cache.getPath() + ".offsets.tmp");
+		int headerLength = header(rules, ham, spam, 0, 0, 0, false).length;
+
+		try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+				FileChannel offsets = FileChannel.open(offsetsTmp.toPath(), StandardOpenOption.CREATE,
+						StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
+						StandardOpenOption.DELETE_ON_CLOSE)) {
+			channel.position(headerLength);
+			StreamWriter writer = new StreamWriter(channel, offsets);
+			LogParser parser = new LogParser(rules);
+			parser.parse(ham, writer, false);
+			parser.parse(spam, writer, true);
+			writer.finish();
+
+			ByteBuffer header = ByteBuffer.wrap(header(rules, ham, spam, writer.nEmails, writer.rows, (int) writer.hits,
+					false));
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+			ByteBuffer crc = ByteBuffer.allocate(8);
+			crc.putLong(checksum(channel, channel.size()));
+			crc.flip();
+			while (crc.hasRemaining()) {
+				channel.write(crc, channel.size());
+			}
+		}
+		replace(tmp, cache);
+	}
+
+	/**
+	 * Writes the emails given by LogParser to a cache file, in the layout of write()
+	 */
+	private static class StreamWriter implements LogParser.Sink {
+
+		private final FileChannel channel;
+		private final FileChannel offsets;
+		private final ByteBuffer ids = ByteBuffer.allocateDirect(1 << 20);
+		private final ByteBuffer rowOffsets = ByteBuffer.allocateDirect(1 << 20);
+		private long[] labels = new long[1024];
+		private long hits = 0;
+		private int rows = 0;
+		private int nEmails = 0;
+
+		/**
+		 * @param channel of the cache file, at the position of the rule indexes
+		 * @param offsets temporary file for the row offsets
+		 */
+		StreamWriter(FileChannel channel, FileChannel offsets) {
+			this.channel = channel;
+			this.offsets = offsets;
+			rowOffsets.putInt(0);
+		}
+
+		@Override
+		public void add(int id) throws IOException {
+			if (hits == Integer.MAX_VALUE) {
+				throw new IOException("Too many rule hits for a corpus cache");
+			}
+			put(channel, ids, id);
+			hits++;
+		}
+
+		@Override
+		public void endEmail(boolean spam) throws IOException {
+			if (spam) {
+				if ((rows >>> 6) >= labels.length) {
+					labels = Arrays.copyOf(labels, labels.length * 2);
+				}
+				labels[rows >>> 6] |= 1L << rows;
+			}
+			rows++;
+			nEmails++;
+			put(offsets, rowOffsets, (int) hits);
+		}
+
+		/**
+		 * Appends the row offsets, the row counts and the spam labels after the rule indexes
+		 */
+		void finish() throws IOException {
+			flush(channel, ids);
+			flush(offsets, rowOffsets);
+			for (long position = 0; position < offsets.size();) {
+				position += offsets.transferTo(position, offsets.size() - position, channel);
+			}
+			for (int e = 0; e < rows; e++) {
+				put(channel, ids, 1);
+			}
+			for (int w = 0; w < (rows + 63) >>> 6; w++) {
+				if (ids.remaining() < 8) {
+					flush(channel, ids);
+				}
+				ids.putLong(labels[w]);
+			}
+			flush(channel, ids);
+		}
+
+		private static void put(FileChannel channel, ByteBuffer buffer, int value) throws IOException {
+			if (buffer.remaining() < 4) {
+				flush(channel, buffer);
+			}
+			buffer.putInt(value);
+		}
+
+		private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * Replaces the cache (or any file) with the temporary file it was written to, atomically if possible
+	 */
+	static void replace(File tmp, File cache) throws IOException {
+		try {
+			Files.move(tmp.toPath(), cache.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp.toPath(), cache.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Reads the corpus from the cache file
+	 *
+	 * @param cache file
+	 * @param rules of rules.cf
+	 * @param ham ham.log
+	 * @param spam spam.log
+	 * @return the corpus, or null if the cache is not up to date with the rules, ham.log or spam.log, or not
+	 *         merged
+	 * @throws IOException if the cache is damaged
+	 */
+	static CompiledCorpus read(File cache, ArrayList<String> rules, File ham, File spam) throws IOException {
+		try (FileChannel channel = FileChannel.open(cache.toPath(), StandardOpenOption.READ)) {
+			Header header = readHeader(channel);
+			if (header == null || !header.merged || !header.isUpToDate(rules, ham, spam)) {
+				return null;
+			}
+
+			// The CRC32 is computed from the same buffers the arrays are read from, in a single pass
+			CRC32 crc = new CRC32();
+			ByteBuffer buffer = ByteBuffer.allocate((int) header.length);
+			readFully(channel, 0, buffer);
+			crc.update(buffer.array(), 0, buffer.limit());
+
+			long position = header.length;
+			int[] ruleIds = new int[header.nHits];
+			buffer = ByteBuffer.allocate(BUFFER);
+			position = readInts(channel, position, ruleIds, ruleIds.length, buffer, crc);
+			int[] rowOffsets = new int[header.nRows + 1];
+			position = readInts(channel, position, rowOffsets, rowOffsets.length, buffer, crc);
+			int[] rowCounts = new int[header.nRows];
+			position = readInts(channel, position, rowCounts, rowCounts.length, buffer, crc);
+			long[] spamLabels = new long[(header.nRows + 63) >>> 6];
+			position = readLongs(channel, position, spamLabels, spamLabels.length, buffer, crc);
+			long[] checksum = new long[1];
+			readLongs(channel, position, checksum);
+			if (crc.getValue() != checksum[0]) {
+				throw new IOException("Checksum of " + cache + " does not match");
+			}
+
+			return new CompiledCorpus(header.rules.size(), header.nEmails, ruleIds, rowOffsets, spamLabels, rowCounts);
+		} catch (RuntimeException e) {
+			throw new IOException("Corpus cache " + cache + " is damaged", e);
+		}
+	}
+
+	/**
+	 * Header of a cache file
+	 */
+	static class Header {
+		String hamPath;
+		long hamSize;
+		long hamModified;
+		String spamPath;
+		long spamSize;
+		long spamModified;
+		ArrayList<String> rules = new ArrayList<>();
+		int nEmails;
+		int nRows;
+		int nHits;
+		boolean merged;
+		long length;
+
+		/**
+		 * @return true if the cache was compiled from the same rule names, ham.log and spam.log
+		 */
+		boolean isUpToDate(ArrayList<String> rules, File ham, File spam) {
+			return this.rules.equals(rules) && hamPath.equals(ham.getAbsolutePath()) && hamSize == ham.length()
+					&& hamModified == ham.lastModified() && spamPath.equals(spam.getAbsolutePath())
+					&& spamSize == spam.length() && spamModified == spam.lastModified();
+		}
+
+		/**
+		 * @return size of the cache file: header, arrays and CRC32
+		 */
+		long fileSize() {
+			return length + 4L * nHits + 4L * (nRows + 1) + 4L * nRows + 8L * ((nRows + 63) >>> 6) + 8;
+		}
+	}
+
+	/**
+	 * Builds the header of a cache file
+	 *
+	 * @param merged true if repeated emails are merged into rows with a count
+	 */
+	private static byte[] header(ArrayList<String> rules, File ham, File spam, int nEmails, int nRows, int nHits,
+			boolean merged) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeString(out, ham.getAbsolutePath());
+		out.writeLong(ham.length());
+		out.writeLong(ham.lastModified());
+		writeString(out, spam.getAbsolutePath());
+		out.writeLong(spam.length());
+		out.writeLong(spam.lastModified());
+		out.writeInt(rules.size());
+		for (String rule : rules) {
+			writeString(out, rule);
+		}
+		out.writeInt(nEmails);
+		out.writeInt(nRows);
+		out.writeInt(nHits);
+		out.writeBoolean(merged);
+		CRC32 crc = new CRC32();
+		crc.update(bytes.toByteArray());
+		out.writeLong(crc.getValue());
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Reads the header of a cache file, with a buffer twice as large each time it does not fit
+	 *
+	 * @return the header, or null if it is not a cache file of this version
+	 * @throws IOException if the CRC32 of the header or the size of the file do not match
+	 */
+	static Header readHeader(FileChannel channel) throws IOException {
+		long limit = Math.min(channel.size(), MAX_HEADER);
+		for (long size = Math.min(limit, 1 << 16);; size = Math.min(limit, size * 2)) {
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			readFully(channel, 0, buffer);
+			try {
+				Header header = readHeader(buffer);
+				if (header != null && header.fileSize() != channel.size()) {
+					throw new IOException("Size of the corpus cache does not match its header");
+				}
+				return header;
+			} catch (BufferUnderflowException e) {
+				if (size == limit) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	private static Header readHeader(ByteBuffer buffer) throws IOException {
+		if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			return null;
+		}
+		Header header = new Header();
+		header.hamPath = readString(buffer);
+		header.hamSize = buffer.getLong();
+		header.hamModified = buffer.getLong();
+		header.spamPath = readString(buffer);
+		header.spamSize = buffer.getLong();
+		header.spamModified = buffer.getLong();
+		int nRules = buffer.getInt();
+		for (int r = 0; r < nRules; r++) {
+			header.rules.add(readString(buffer));
+		}
+		header.nEmails = buffer.getInt();
+		header.nRows = buffer.getInt();
+		header.nHits = buffer.getInt();
+		header.merged = buffer.get() != 0;
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.position());
+		if (crc.getValue() != buffer.getLong()) {
+			throw new IOException("Checksum of the corpus cache header does not match");
+		}
+		header.length = buffer.position();
+		return header;
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeBuffer(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+		crc.update(buffer.duplicate());
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Fills the buffer with the bytes of the file from position on, and flips it
+	 */
+	private static void readFully(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new EOFException("Corpus cache ends too soon");
+			}
+			position += read;
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Computes the CRC32 of the first length bytes of the file
+	 */
+	private static long checksum(FileChannel channel, long length) throws IOException {
+		CRC32 crc = new CRC32();
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER);
+		for (long position = 0; position < length; position += buffer.limit()) {
+			buffer.clear();
+			buffer.limit((int) Math.min(BUFFER, length - position));
+			readFully(channel, position, buffer);
+			crc.update(buffer.array(), 0, buffer.limit());
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Reads the array from the file, starting at position
+	 *
+	 * @return position after the array
+	 */
+	static long readInts(FileChannel channel, long position, int[] array) throws IOException {
+		return readInts(channel, position, array, array.length,
+				ByteBuffer.allocate((int) Math.min(BUFFER, 4L * array.length)), null);
+	}
+
+	/**
+	 * Reads the first length values of the array from the file, starting at position, through the buffer
+	 *
+	 * @param buffer heap buffer reused for every read, its capacity a multiple of 8
+	 * @return position after the values
+	 */
+	static long readInts(FileChannel channel, long position, int[] array, int length, ByteBuffer buffer)
+			throws IOException {
+		return readInts(channel, position, array, length, buffer, null);
+	}
+
+	/**
+	 * Reads the first values of the array like readInts(), adding their bytes to the CRC32 (if not null)
+	 *
+	 * @return position after the values
+	 */
+	private static long readInts(FileChannel channel, long position, int[] array, int values, ByteBuffer buffer,
+			CRC32 crc) throws IOException {
+		for (int i = 0; i < values;) {
+			int length = Math.min(buffer.capacity() / 4, values - i);
+			buffer.clear();
+			buffer.limit(4 * length);
+			readFully(channel, position, buffer);
+			if (crc != null) {
+				crc.update(buffer.array(), 0, buffer.limit());
+			}
+			buffer.asIntBuffer().get(array, i, length);
+			position += 4L * length;
+			i += length;
+		}
+		return position;
+	}
+
+	/**
+	 * Reads the array from the file, starting at position
+	 *
+	 * @return position after the array
+	 */
+	static long readLongs(FileChannel channel, long position, long[] array) throws IOException {
+		return readLongs(channel, position, array, array.length,
+				ByteBuffer.allocate((int) Math.min(BUFFER, 8L * array.length)), null);
+	}
+
+	/**
+	 * Reads the first length values of the array from the file, starting at position, through the buffer
+	 *
+	 * @param buffer heap buffer reused for every read, its capacity a multiple of 8
+	 * @return position after the values
+	 */
+	static long readLongs(FileChannel channel, long position, long[] array, int length, ByteBuffer buffer)
+			throws IOException {
+		return readLongs(channel, position, array, length, buffer, null);
+	}
+
+	/**
+	 * Reads the first values of the array like readLongs(), adding their bytes to the CRC32 (if not null)
+	 *
+	 * @return position after the values
+	 */
+	private static long readLongs(FileChannel channel, long position, long[] array, int values, ByteBuffer buffer,
+			CRC32 crc) throws IOException {
+		for (int i = 0; i < values;) {
+			int length = Math.min(buffer.capacity() / 8, values - i);
+			buffer.clear();
+			buffer.limit(8 * length);
+			readFully(channel, position, buffer);
+			if (crc != null) {
+				crc.update(buffer.array(), 0, buffer.limit());
+			}
+			buffer.asLongBuffer().get(array, i, length);
+			position += 8L * length;
+			i += length;
+		}
+		return position;
+	}
+}
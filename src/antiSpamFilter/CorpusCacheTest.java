@@ -0,0 +1,146 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class CorpusCacheTest {
+
+	String rules_path = "jUnitTests/TestFiles/rules.cf";
+	String ham_path = "jUnitTests/TestFiles/ham.log";
+	String spam_path = "jUnitTests/TestFiles/spam.log";
+
+	private final TestCorpus files = new TestCorpus();
+
+	/**
+	 * Deletes the temporary files of the test
+	 */
+	@After
+	public void deleteFiles() {
+		files.delete();
+	}
+
+	/**
+	 * Copies the test ham.log and spam.log to a temporary directory, so the caches are not written next to
+	 * the test files.
+	 * @return {ham, spam} copies
+	 * @throws IOException
+	 */
+	private File[] copyLogs() throws IOException {
+		File dir = files.directory("corpus");
+		File ham = new File(dir, "ham.log");
+		File spam = new File(dir, "spam.log");
+		Files.copy(new File(ham_path).toPath(), ham.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		Files.copy(new File(spam_path).toPath(), spam.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		return new File[] { ham, spam };
+	}
+
+	/**
+	 * Loads the corpus twice. To test this it was verified if the first load writes the cache and if the
+	 * corpus read from the cache is the same as the compiled one.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testLoad() throws IOException {
+		File[] logs = copyLogs();
+		ArrayList<String> rules = Functions.get_rules(rules_path);
+		CompiledCorpus compiled = CorpusCache.load(rules, logs[0].getPath(), logs[1].getPath());
+		File cache = new File(CorpusCache.cache_path(logs[0].getPath()));
+		assertTrue("failure - cache should be written", cache.isFile());
+
+		CompiledCorpus cached = CorpusCache.read(cache, rules, logs[0], logs[1]);
+		assertNotNull("failure - cache should be up to date", cached);
+		assertEquals(compiled.getNumberOfEmails(), cached.getNumberOfEmails());
+		assertEquals(compiled.getNumberOfRules(), cached.getNumberOfRules());
+		assertArrayEquals(compiled.getRuleIds(), cached.getRuleIds());
+		assertArrayEquals(compiled.getRowOffsets(), cached.getRowOffsets());
+		assertArrayEquals(compiled.getRowCounts(), cached.getRowCounts());
+		for (int e = 0; e < compiled.getNumberOfRows(); e++) {
+			assertEquals(compiled.isSpam(e), cached.isSpam(e));
+		}
+	}
+
+	/**
+	 * Changes ham.log and the rules after the cache is written. To test this it was verified if the cache is
+	 * no longer up to date and if loading again gives the corpus of the new ham.log.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testStaleCache() throws IOException {
+		File[] logs = copyLogs();
+		ArrayList<String> rules = Functions.get_rules(rules_path);
+		CorpusCache.load(rules, logs[0].getPath(), logs[1].getPath());
+		File cache = new File(CorpusCache.cache_path(logs[0].getPath()));
+
+		ArrayList<String> otherRules = new ArrayList<>(rules);
+		otherRules.add("E");
+		assertNull("failure - cache should be stale", CorpusCache.read(cache, otherRules, logs[0], logs[1]));
+
+		FileWriter fw = new FileWriter(logs[0], true);
+		fw.write("\nE5 A B");
+		fw.close();
+		assertNull("failure - cache should be stale", CorpusCache.read(cache, rules, logs[0], logs[1]));
+		assertEquals("failure - number of emails should be same", 9,
+				CorpusCache.load(rules, logs[0].getPath(), logs[1].getPath()).getNumberOfEmails());
+	}
+
+	/**
+	 * Prepares the cache for streaming, then loads it and prepares it again. To test this it was verified if
+	 * load() replaces the streamed layout with the merged one, if prepare() keeps the merged cache and if a
+	 * truncated cache is compiled again by prepare().
+	 * @throws IOException
+	 */
+	@Test
+	public final void testLayout() throws IOException {
+		File[] logs = copyLogs();
+		ArrayList<String> rules = Functions.get_rules(rules_path);
+		File cache = CorpusCache.prepare(rules, logs[0].getPath(), logs[1].getPath());
+		assertNull("failure - streamed cache should not be read", CorpusCache.read(cache, rules, logs[0], logs[1]));
+
+		assertEquals(8, CorpusCache.load(rules, logs[0].getPath(), logs[1].getPath()).getNumberOfEmails());
+		assertNotNull("failure - merged cache should be read", CorpusCache.read(cache, rules, logs[0], logs[1]));
+		byte[] merged = Files.readAllBytes(cache.toPath());
+		CorpusCache.prepare(rules, logs[0].getPath(), logs[1].getPath());
+		assertArrayEquals("failure - merged cache should be kept", merged, Files.readAllBytes(cache.toPath()));
+
+		Files.write(cache.toPath(), Arrays.copyOf(merged, merged.length - 8));
+		CorpusCache.prepare(rules, logs[0].getPath(), logs[1].getPath());
+		assertEquals("failure - truncated cache should be compiled again", merged.length,
+				Files.readAllBytes(cache.toPath()).length);
+		assertNull("failure - compiled cache should be streamed", CorpusCache.read(cache, rules, logs[0], logs[1]));
+	}
+
+	/**
+	 * Damages the cache file. To test this it was verified if reading it fails and if loading compiles the
+	 * corpus again.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testDamagedCache() throws IOException {
+		File[] logs = copyLogs();
+		ArrayList<String> rules = Functions.get_rules(rules_path);
+		CorpusCache.load(rules, logs[0].getPath(), logs[1].getPath());
+		File cache = new File(CorpusCache.cache_path(logs[0].getPath()));
+
+		byte[] bytes = Files.readAllBytes(cache.toPath());
+		bytes[bytes.length - 20] ^= 1;
+		Files.write(cache.toPath(), bytes);
+		try {
+			CorpusCache.read(cache, rules, logs[0], logs[1]);
+			fail("failure - damaged cache should not be read");
+		} catch (IOException e) {
+			// expected
+		}
+		assertEquals("failure - number of emails should be same", 8,
+				CorpusCache.load(rules, logs[0].getPath(), logs[1].getPath()).getNumberOfEmails());
+	}
+}
@@ -0,0 +1,296 @@
+package antiSpamFilter;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * <p> Generates synthetic ham.log and spam.log files, in the format read by file_to_array(), to test and
+ * benchmark without the real logs.
+ * <p> The rules hit by an email follow a Zipf distribution (the rule of rank k is hit with probability
+ * proportional to 1 / k^s), with a different ranking of the rules for ham and for spam, so the weights can
+ * tell them apart. The number of rules hit by an email follows a Poisson distribution, and a rule is hit at
+ * most once per email.
+ * <p> The same seed and parameters always generate the same files.
+ */
+public class CorpusGenerator {
+
+	private static final long HAM_SEED = 0x68616dL;
+	private static final long SPAM_SEED = 0x7370616dL;
+
+	private final ArrayList<String> rules;
+	private final long seed;
+	private double zipfExponent = 1.0;
+	private double meanHits = 6.0;
+
+	/**
+	 * @param rules names of the rules (e.g. result of get_rules())
+	 * @param seed of the random numbers
+	 */
+	public CorpusGenerator(ArrayList<String> rules, long seed) {
+		if (rules.isEmpty()) {
+			throw new IllegalArgumentException("There must be at least one rule");
+		}
+		this.rules = rules;
+		this.seed = seed;
+	}
+
+	/**
+	 * @param zipfExponent exponent s of the Zipf distribution of the rule hits (0 is uniform, default 1)
+	 */
+	public void setZipfExponent(double zipfExponent) {
+		if (zipfExponent < 0) {
+			throw new IllegalArgumentException("zipfExponent must not be negative");
+		}
+		this.zipfExponent = zipfExponent;
+	}
+
+	/**
+	 * @param meanHits mean number of rules hit by an email (default 6)
+	 */
+	public void setMeanHits(double meanHits) {
+		if (meanHits < 0) {
+			throw new IllegalArgumentException("meanHits must not be negative");
+		}
+		this.meanHits = meanHits;
+	}
+
+	/**
+	 * Writes a log with nEmails emails, one per line: the name of the email followed by the rules it hits,
+	 * separated by tabs
+	 *
+	 * @param path of the log
+	 * @param nEmails number of emails
+	 * @param spam true to write spam.log, false to write ham.log
+	 * @throws IOException
+	 */
+	public void write(String path, int nEmails, boolean spam) throws IOException {
+		SplittableRandom random = new SplittableRandom(seed ^ (spam ? SPAM_SEED : HAM_SEED));
+		int nRules = rules.size();
+
+		// Rule of each rank, and the cumulative distribution of the ranks
+		int[] ranking = new int[nRules];
+		for (int r = 0; r < nRules; r++) {
+			ranking[r] = r;
+		}
+		for (int r = nRules - 1; r > 0; r--) {
+			int other = random.nextInt(r + 1);
+			int tmp = ranking[r];
+			ranking[r] = ranking[other];
+			ranking[other] = tmp;
+		}
+		double[] cdf = new double[nRules];
+		double total = 0.0;
+		for (int k = 0; k < nRules; k++) {
+			total += 1.0 / Math.pow(k + 1, zipfExponent);
+			cdf[k] = total;
+		}
+
+		byte[][] names = new byte[nRules][];
+		for (int r = 0; r < nRules; r++) {
+			names[r] = ("\t" + rules.get(r)).getBytes(StandardCharsets.UTF_8);
+		}
+		byte[] prefix = (spam ? "spam" : "ham").getBytes(StandardCharsets.US_ASCII);
+		int[] marks = new int[nRules]; // email that last hit each rule, to hit a rule only once per email
+
+		try (Output out = new Output(new FileOutputStream(path))) {
+			for (int e = 1; e <= nEmails; e++) {
+				out.write(prefix);
+				out.writeInt(e);
+				int hits = Math.min(poisson(random), nRules);
+				for (int h = 0; h < hits;) {
+					int rank = Arrays.binarySearch(cdf, random.nextDouble() * total);
+					int r = ranking[rank < 0 ? Math.min(-rank - 1, nRules - 1) : rank];
+					if (marks[r] != e) {
+						marks[r] = e;
+						out.write(names[r]);
+						h++;
+					}
+				}
+				out.write('\n');
+			}
+		}
+	}
+
+	/**
+	 * @return number of hits of an email, from a Poisson distribution with mean meanHits
+	 */
+	private int poisson(SplittableRandom random) {
+		if (meanHits > 30) { // normal approximation, exp(-mean) gets too small
+			return (int) Math.max(0, Math.round(meanHits + Math.sqrt(meanHits) * gaussian(random)));
+		}
+		double limit = Math.exp(-meanHits);
+		int k = 0;
+		for (double p = random.nextDouble(); p > limit; p *= random.nextDouble()) {
+			k++;
+		}
+		return k;
+	}
+
+	private static double gaussian(SplittableRandom random) {
+		return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+	}
+
+	/**
+	 * Creates the rules RULE_0, RULE_1, ...
+	 *
+	 * @param nRules number of rules
+	 * @return names of the rules
+	 */
+	public static ArrayList<String> generate_rules(int nRules) {
+		ArrayList<String> rules = new ArrayList<>();
+		for (int r = 0; r < nRules; r++) {
+			rules.add("RULE_" + r);
+		}
+		return rules;
+	}
+
+	/**
+	 * Writes a rules.cf with the rules, all with weight 0.0
+	 *
+	 * @param rules_path of rules.cf
+	 * @param rules names of the rules
+	 * @throws FileNotFoundException
+	 */
+	public static void write_rules(String rules_path, ArrayList<String> rules) throws FileNotFoundException {
+		try (PrintWriter out = new PrintWriter(rules_path)) {
+			for (String rule : rules) {
+				out.print(rule + " 0.0\n");
+			}
+		}
+	}
+
+	/**
+	 * Generates rules.cf (unless --rules-cf is given), ham.log and spam.log in a directory.
+	 *
+	 * Usage: CorpusGenerator directory [--ham N] [--spam N] [--rules N | --rules-cf path] [--zipf s] [--hits mean]
+	 * [--seed n]
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: CorpusGenerator directory [--ham N] [--spam N] [--rules N | --rules-cf path]"
+					+ " [--zipf s] [--hits mean] [--seed n]");
+			return;
+		}
+		String directory = args[0];
+		int nHam = 100000;
+		int nSpam = 100000;
+		int nRules = 335;
+		String rules_path = null;
+		double zipf = 1.0;
+		double hits = 6.0;
+		long seed = 1;
+		for (int i = 1; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "--ham":
+				nHam = Integer.parseInt(args[i + 1]);
+				break;
+			case "--spam":
+				nSpam = Integer.parseInt(args[i + 1]);
+				break;
+			case "--rules":
+				nRules = Integer.parseInt(args[i + 1]);
+				break;
+			case "--rules-cf":
+				rules_path = args[i + 1];
+				break;
+			case "--zipf":
+				zipf = Double.parseDouble(args[i + 1]);
+				break;
+			case "--hits":
+				hits = Double.parseDouble(args[i + 1]);
+				break;
+			case "--seed":
+				seed = Long.parseLong(args[i + 1]);
+				break;
+			default:
+				System.out.println("WARNING: unknown option " + args[i]);
+			}
+		}
+
+		new File(directory).mkdirs();
+		ArrayList<String> rules;
+		if (rules_path != null) {
+			rules = Functions.get_rules(rules_path);
+		} else {
+			rules = generate_rules(nRules);
+			write_rules(directory + "/rules.cf", rules);
+		}
+		CorpusGenerator generator = new CorpusGenerator(rules, seed);
+		generator.setZipfExponent(zipf);
+		generator.setMeanHits(hits);
+		long start = System.currentTimeMillis();
+		generator.write(directory + "/ham.log", nHam, false);
+		generator.write(directory + "/spam.log", nSpam, true);
+		System.out.println("Generated " + nHam + " ham and " + nSpam + " spam emails with " + rules.size() + " rules in "
+				+ (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * Buffered output of bytes and decimal numbers, without creating Strings
+	 */
+	private static class Output implements AutoCloseable {
+		private final OutputStream out;
+		private final byte[] buffer = new byte[1 << 16];
+		private int size = 0;
+
+		Output(OutputStream out) {
+			this.out = out;
+		}
+
+		void write(byte[] bytes) throws IOException {
+			if (size + bytes.length > buffer.length) {
+				flush();
+				if (bytes.length > buffer.length) {
+					out.write(bytes);
+					return;
+				}
+			}
+			System.arraycopy(bytes, 0, buffer, size, bytes.length);
+			size += bytes.length;
+		}
+
+		void write(char c) throws IOException {
+			if (size == buffer.length) {
+				flush();
+			}
+			buffer[size++] = (byte) c;
+		}
+
+		void writeInt(int value) throws IOException {
+			if (size + 11 > buffer.length) {
+				flush();
+			}
+			int digits = 1;
+			for (int v = value; v >= 10; v /= 10) {
+				digits++;
+			}
+			for (int i = size + digits - 1; i >= size; i--) {
+				buffer[i] = (byte) ('0' + value % 10);
+				value /= 10;
+			}
+			size += digits;
+		}
+
+		private void flush() throws IOException {
+			out.write(buffer, 0, size);
+			size = 0;
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class CorpusGeneratorTest {
+
+	private final TestCorpus files = new TestCorpus();
+
+	/**
+	 * Deletes the temporary files of the test
+	 */
+	@After
+	public void deleteFiles() {
+		files.delete();
+	}
+
+	/**
+	 * Generates a ham.log of 5000 emails twice with the same seed and once with another seed. To test this it
+	 * was verified if file_to_array() reads 5000 emails that only hit known rules, each at most once, and if
+	 * only the same seed gives the same file.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testWrite() throws IOException {
+		File dir = files.directory("generator");
+		ArrayList<String> rules = CorpusGenerator.generate_rules(50);
+		String first = new File(dir, "first.log").getPath();
+		String second = new File(dir, "second.log").getPath();
+		String other = new File(dir, "other.log").getPath();
+		new CorpusGenerator(rules, 7).write(first, 5000, false);
+		new CorpusGenerator(rules, 7).write(second, 5000, false);
+		new CorpusGenerator(rules, 8).write(other, 5000, false);
+
+		ArrayList<ArrayList<String>> result = Functions.file_to_array(first);
+		assertEquals(5000, result.size());
+		for (ArrayList<String> line : result) {
+			assertTrue("failure - only known rules should be hit", rules.containsAll(line));
+			assertEquals("failure - a rule should be hit once per email", line.size(), new HashSet<>(line).size());
+		}
+		byte[] bytes = Files.readAllBytes(new File(first).toPath());
+		assertTrue("failure - the same seed should give the same log",
+				Arrays.equals(bytes, Files.readAllBytes(new File(second).toPath())));
+		assertFalse("failure - another seed should give another log",
+				Arrays.equals(bytes, Files.readAllBytes(new File(other).toPath())));
+	}
+
+	/**
+	 * Generates a spam.log with 10 rules, Zipf exponent 2 and a mean of 0.2 hits (so few emails hit 2 rules).
+	 * To test this it was verified if the most hit rule is hit about 4 times as much as the second (1 / 1^2
+	 * against 1 / 2^2) and if the mean number of hits is about 0.2.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testDistributions() throws IOException {
+		File dir = files.directory("generator");
+		ArrayList<String> rules = CorpusGenerator.generate_rules(10);
+		String path = new File(dir, "spam.log").getPath();
+		CorpusGenerator generator = new CorpusGenerator(rules, 3);
+		generator.setZipfExponent(2.0);
+		generator.setMeanHits(0.2);
+		generator.write(path, 50000, true);
+
+		int[] hits = new int[rules.size()];
+		int total = 0;
+		for (ArrayList<String> line : Functions.file_to_array(path)) {
+			for (String rule : line) {
+				hits[rules.indexOf(rule)]++;
+				total++;
+			}
+		}
+		Arrays.sort(hits);
+		double ratio = (double) hits[9] / hits[8];
+		assertTrue("failure - ratio of the 2 most hit rules was " + ratio, ratio > 3.5 && ratio < 4.5);
+		assertEquals(0.2, (double) total / 50000, 0.01);
+	}
+}
@@ -0,0 +1,118 @@
+package antiSpamFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * <p> Keeps the corpus of the selected rules, ham.log and spam.log in memory, so the Interface can test
+ * weights again and again without reading the logs (or their cache, see CorpusCache) each time.
+ * <p> The corpus is loaded again when the rules or the paths change, or when the size or the last
+ * modification time of a log changes. invalidate() drops it (e.g. when the user picks a file again).
+ * <p> It also keeps an IncrementalEvaluator of the corpus, so after a single weight is edited only the emails
+ * that break that rule are scored again.
+ * <p> get() and evaluator() load on the calling thread, so the Interface calls them on a SwingWorker and only
+ * uses loaded() on the EDT, which never waits for a load.
+ */
+public class CorpusHolder {
+
+	private volatile Entry entry; // read without the lock by loaded()
+
+	/**
+	 * @param rules names of the rules (e.g. result of get_rules())
+	 * @param ham_path path of ham.log
+	 * @param spam_path path of spam.log
+	 * @return the corpus, loaded again only if something changed since the last call
+	 * @throws IOException
+	 */
+	public synchronized CompiledCorpus get(ArrayList<String> rules, String ham_path, String spam_path)
+			throws IOException {
+		Entry current = find(rules, ham_path, spam_path);
+		if (current == null) {
+			long[] stamp = stamp(ham_path, spam_path);
+			current = new Entry(new ArrayList<>(rules), ham_path, spam_path, stamp,
+					CorpusCache.load(rules, ham_path, spam_path));
+			entry = current;
+		}
+		return current.corpus;
+	}
+
+	/**
+	 * @param rules names of the rules (e.g. result of get_rules())
+	 * @param ham_path path of ham.log
+	 * @param spam_path path of spam.log
+	 * @return evaluator of the corpus returned by get(), which remembers the last evaluated weights
+	 * @throws IOException
+	 */
+	public synchronized IncrementalEvaluator evaluator(ArrayList<String> rules, String ham_path, String spam_path)
+			throws IOException {
+		get(rules, ham_path, spam_path);
+		Entry current = entry;
+		if (current.evaluator == null) {
+			current.evaluator = new IncrementalEvaluator(current.corpus, 2);
+		}
+		return current.evaluator;
+	}
+
+	/**
+	 * Never loads the corpus nor waits for another thread that is loading it
+	 *
+	 * @param rules names of the rules (e.g. result of get_rules())
+	 * @param ham_path path of ham.log
+	 * @param spam_path path of spam.log
+	 * @return the evaluator returned by evaluator() if the corpus is loaded and nothing changed since, null
+	 *         otherwise
+	 */
+	public IncrementalEvaluator loaded(ArrayList<String> rules, String ham_path, String spam_path) {
+		Entry current = find(rules, ham_path, spam_path);
+		return current == null ? null : current.evaluator;
+	}
+
+	/**
+	 * Drops the corpus, so the next get() loads it again
+	 */
+	public synchronized void invalidate() {
+		entry = null;
+	}
+
+	/**
+	 * @return the loaded corpus if it is the one of these rules and logs and the logs did not change, null
+	 *         otherwise
+	 */
+	private Entry find(ArrayList<String> rules, String ham_path, String spam_path) {
+		Entry current = entry;
+		if (current == null || !rules.equals(current.rules) || !ham_path.equals(current.ham_path)
+				|| !spam_path.equals(current.spam_path) || !Arrays.equals(stamp(ham_path, spam_path), current.stamp)) {
+			return null;
+		}
+		return current;
+	}
+
+	private static long[] stamp(String ham_path, String spam_path) {
+		File ham = new File(ham_path);
+		File spam = new File(spam_path);
+		return new long[] { ham.length(), ham.lastModified(), spam.length(), spam.lastModified() };
+	}
+
+	/**
+	 * A loaded corpus and what it was loaded from
+	 */
+	private static final class Entry {
+
+		final ArrayList<String> rules;
+		final String ham_path;
+		final String spam_path;
+		final long[] stamp; // {size, last modified} of ham.log and spam.log
+		final CompiledCorpus corpus;
+		volatile IncrementalEvaluator evaluator; // created by evaluator(), under the lock of the holder
+
+		Entry(ArrayList<String> rules, String ham_path, String spam_path, long[] stamp, CompiledCorpus corpus) {
+			this.rules = rules;
+			this.ham_path = ham_path;
+			this.spam_path = spam_path;
+			this.stamp = stamp;
+			this.corpus = corpus;
+		}
+	}
+}
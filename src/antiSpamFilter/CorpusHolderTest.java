@@ -0,0 +1,106 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class CorpusHolderTest {
+
+	String rules_path = "jUnitTests/TestFiles/rules.cf";
+	String ham_path = "jUnitTests/TestFiles/ham.log";
+	String spam_path = "jUnitTests/TestFiles/spam.log";
+
+	private final TestCorpus files = new TestCorpus();
+
+	/**
+	 * Deletes the temporary files of the test
+	 */
+	@After
+	public void deleteFiles() {
+		files.delete();
+	}
+
+	/**
+	 * Gets the corpus of copies of the test logs several times. To test this it was verified if the same
+	 * corpus is kept while nothing changes, and if it is loaded again after invalidate(), after the rules
+	 * change and after ham.log changes.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testGet() throws IOException {
+		File dir = files.directory("holder");
+		File ham = new File(dir, "ham.log");
+		File spam = new File(dir, "spam.log");
+		Files.copy(new File(ham_path).toPath(), ham.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		Files.copy(new File(spam_path).toPath(), spam.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		ArrayList<String> rules = Functions.get_rules(rules_path);
+		CorpusHolder holder = new CorpusHolder();
+
+		CompiledCorpus first = holder.get(rules, ham.getPath(), spam.getPath());
+		assertSame("failure - corpus should be kept", first,
+				holder.get(new ArrayList<>(rules), ham.getPath(), spam.getPath()));
+
+		holder.invalidate();
+		CompiledCorpus second = holder.get(rules, ham.getPath(), spam.getPath());
+		assertNotSame("failure - corpus should be loaded again", first, second);
+
+		ArrayList<String> otherRules = new ArrayList<>(rules);
+		otherRules.add("E");
+		CompiledCorpus third = holder.get(otherRules, ham.getPath(), spam.getPath());
+		assertNotSame("failure - corpus should be loaded again", second, third);
+		assertEquals(otherRules.size(), third.getNumberOfRules());
+
+		FileWriter fw = new FileWriter(ham, true);
+		fw.write("\nE5 A B");
+		fw.close();
+		CompiledCorpus fourth = holder.get(otherRules, ham.getPath(), spam.getPath());
+		assertNotSame("failure - corpus should be loaded again", third, fourth);
+		assertEquals(third.getNumberOfEmails() + 1, fourth.getNumberOfEmails());
+	}
+
+	/**
+	 * Edits the weights one at a time, as in the manual panel, on a generated corpus of 100 rules (hit
+	 * uniformly, so every rule is broken by few emails). To test this it was verified if every edit after the
+	 * first is evaluated incrementally and gives the same FP and FN as the whole corpus, and if loaded() only
+	 * returns the evaluator of the loaded logs.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testEvaluator() throws IOException {
+		File dir = files.directory("holder");
+		String ham_path = new File(dir, "ham.log").getPath();
+		String spam_path = new File(dir, "spam.log").getPath();
+		ArrayList<String> rules = CorpusGenerator.generate_rules(100);
+		CorpusGenerator generator = new CorpusGenerator(rules, 7);
+		generator.setZipfExponent(0);
+		generator.write(ham_path, 2000, false);
+		generator.write(spam_path, 2000, true);
+		CorpusHolder holder = new CorpusHolder();
+		CompiledCorpus corpus = holder.get(rules, ham_path, spam_path);
+		assertNull("failure - loaded() should not create the evaluator", holder.loaded(rules, ham_path, spam_path));
+		IncrementalEvaluator evaluator = holder.evaluator(rules, ham_path, spam_path);
+		assertSame(evaluator, holder.loaded(rules, ham_path, spam_path));
+		assertNull(holder.loaded(rules, spam_path, ham_path));
+		double[] weights = new double[rules.size()];
+		evaluator.evaluate(weights);
+
+		for (int r = 0; r < weights.length; r++) {
+			weights[r] = 5.0;
+			assertSame(evaluator, holder.evaluator(rules, ham_path, spam_path));
+			double[] fx = evaluator.evaluate(weights);
+			double[] expected = corpus.evaluate(weights);
+			assertEquals(expected[0], fx[0], 0.0);
+			assertEquals(expected[1], fx[1], 0.0);
+		}
+		assertEquals(1, evaluator.getFullEvaluations());
+		assertEquals(weights.length, evaluator.getIncrementalEvaluations());
+	}
+}
@@ -0,0 +1,149 @@
+package antiSpamFilter;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p> Bounded LRU cache of evaluated weights, so repeated solutions (SBX and the polynomial mutation often
+ * produce children equal to a parent) are not evaluated again.
+ * <p> The weights are the key. With quantum 0 they must be exactly the same, otherwise each weight is rounded to
+ * a multiple of quantum first, and weights that only differ by less than that share the {FP, FN} of the first
+ * one evaluated.
+ * <p> Thread safe, it can be shared by the independent runs of an experiment.
+ */
+public class EvaluationCache {
+
+	private final LinkedHashMap<Key, double[]> entries;
+	private final double quantum;
+	private final Key probe = new Key(new long[0]); // key of the weights looked up by get(), under the lock
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * @param capacity maximum number of evaluated weight vectors kept
+	 * @param quantum weights closer than this are the same key, 0 to compare the exact weights
+	 */
+	public EvaluationCache(final int capacity, double quantum) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+		if (quantum < 0) {
+			throw new IllegalArgumentException("quantum must not be negative");
+		}
+		this.quantum = quantum;
+		this.entries = new LinkedHashMap<Key, double[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 3829581187934532917L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, double[]> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * @param weights weight of each rule, in the order of rules.cf
+	 * @return {FP, FN} of the weights, or null if they were not evaluated (counted as a miss)
+	 */
+	public synchronized double[] get(double[] weights) {
+		double[] fx = new double[2];
+		return get(weights, fx) ? fx : null;
+	}
+
+	/**
+	 * Looks up the weights like get(weights), without allocating anything
+	 *
+	 * @param weights weight of each rule, in the order of rules.cf
+	 * @param fx array where {FP, FN} of the weights is written if they were evaluated
+	 * @return true if the weights were evaluated, false otherwise (counted as a miss)
+	 */
+	public synchronized boolean get(double[] weights, double[] fx) {
+		if (probe.values.length != weights.length) {
+			probe.values = new long[weights.length];
+		}
+		quantize(weights, probe.values);
+		probe.hash = Arrays.hashCode(probe.values);
+		double[] cached = entries.get(probe);
+		if (cached == null) {
+			misses++;
+			return false;
+		}
+		hits++;
+		fx[0] = cached[0];
+		fx[1] = cached[1];
+		return true;
+	}
+
+	/**
+	 * Stores the {FP, FN} of the weights, dropping the least recently used entry if the cache is full
+	 *
+	 * @param weights weight of each rule, in the order of rules.cf
+	 * @param fx {FP, FN} of the weights
+	 */
+	public synchronized void put(double[] weights, double[] fx) {
+		entries.put(key(weights), fx.clone());
+	}
+
+	private Key key(double[] weights) {
+		long[] values = new long[weights.length];
+		quantize(weights, values);
+		return new Key(values);
+	}
+
+	private void quantize(double[] weights, long[] values) {
+		for (int r = 0; r < weights.length; r++) {
+			if (quantum == 0) {
+				// -0.0 and 0.0 give the same score
+				values[r] = Double.doubleToLongBits(weights[r] == 0.0 ? 0.0 : weights[r]);
+			} else {
+				values[r] = Math.round(weights[r] / quantum);
+			}
+		}
+	}
+
+	/**
+	 * @return number of evaluated weight vectors kept
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return number of get() that found the weights
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return number of get() that did not find the weights (and had to be evaluated)
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Weights (exact or quantized) with their hash computed once. Only the probe of get() is changed, the keys in
+	 * the map never are.
+	 */
+	private static class Key {
+		private long[] values;
+		private int hash;
+
+		Key(long[] values) {
+			this.values = values;
+			this.hash = Arrays.hashCode(values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && hash == ((Key) obj).hash && Arrays.equals(values, ((Key) obj).values);
+		}
+	}
+}
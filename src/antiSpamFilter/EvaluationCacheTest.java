@@ -0,0 +1,56 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class EvaluationCacheTest {
+
+	/**
+	 * Stores 3 weight vectors in a cache of 2. To test this it was verified if the least recently used one is
+	 * dropped and if the hits and misses are counted, also when the {FP, FN} are written to an array.
+	 */
+	@Test
+	public final void testLeastRecentlyUsed() {
+		EvaluationCache cache = new EvaluationCache(2, 0);
+		double[] a = { 1.0, 2.0 };
+		double[] b = { 1.0, 2.5 };
+		double[] c = { -1.0, 2.0 };
+
+		assertNull("failure - a should not be cached yet", cache.get(a));
+		cache.put(a, new double[] { 3, 4 });
+		cache.put(b, new double[] { 5, 6 });
+		assertArrayEquals(new double[] { 3, 4 }, cache.get(a), 0.0);
+		cache.put(c, new double[] { 7, 8 });
+
+		assertEquals(2, cache.size());
+		assertNull("failure - b should be dropped", cache.get(b));
+		assertArrayEquals(new double[] { 3, 4 }, cache.get(a), 0.0);
+		assertArrayEquals(new double[] { 7, 8 }, cache.get(c), 0.0);
+		double[] fx = new double[2];
+		assertTrue(cache.get(c, fx));
+		assertArrayEquals(new double[] { 7, 8 }, fx, 0.0);
+		assertFalse(cache.get(b, fx));
+		assertEquals(4, cache.getHits());
+		assertEquals(3, cache.getMisses());
+	}
+
+	/**
+	 * Looks up weights close to a cached vector. To test this it was verified if they are only found when the
+	 * weights are quantized and the difference is below the quantum.
+	 */
+	@Test
+	public final void testQuantum() {
+		EvaluationCache exact = new EvaluationCache(10, 0);
+		EvaluationCache quantized = new EvaluationCache(10, 0.001);
+		double[] weights = { 1.0, -2.0 };
+		exact.put(weights, new double[] { 1, 2 });
+		quantized.put(weights, new double[] { 1, 2 });
+
+		double[] close = { 1.0001, -2.0001 };
+		double[] far = { 1.01, -2.0 };
+		assertNull("failure - exact cache should not find close weights", exact.get(close));
+		assertArrayEquals(new double[] { 1, 2 }, quantized.get(close), 0.0);
+		assertNull("failure - quantized cache should not find far weights", quantized.get(far));
+	}
+}
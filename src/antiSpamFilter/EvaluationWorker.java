@@ -0,0 +1,149 @@
+package antiSpamFilter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * <p> Evaluation worker: holds one shard of the rows of a compiled corpus and counts the FP and FN of
+ * populations sent by a RemoteCorpus over a TCP socket bound to localhost.
+ * <p> Protocol (big endian, see DataInputStream): on connection the worker sends the number of rules. Each
+ * request is the population size (0 to stop the worker), the threshold of the parallel evaluation and the
+ * transposed weights of the population (see CompiledCorpus.transpose()). The answer is the count of FP of each
+ * solution followed by the count of FN of each solution, for the rows of the shard only.
+ */
+public class EvaluationWorker implements Runnable, Closeable {
+
+	private final CompiledCorpus shard;
+	private final ServerSocket server;
+
+	/**
+	 * @param shard rows counted by this worker
+	 * @throws IOException
+	 */
+	public EvaluationWorker(CompiledCorpus shard) throws IOException {
+		this.shard = shard;
+		this.server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+	}
+
+	/**
+	 * Reads a shard of the rows of a corpus cache: the rows are split in shards consecutive shards, each of
+	 * them a multiple of 64 rows (except the last one)
+	 *
+	 * @param cache file written by CorpusCache
+	 * @param shard number of the shard (0 for the first)
+	 * @param shards number of shards
+	 * @return the rows of the shard as a corpus of their own
+	 * @throws IOException
+	 */
+	public static CompiledCorpus read_shard(File cache, int shard, int shards) throws IOException {
+		try (StreamingCorpus corpus = new StreamingCorpus(cache, StreamingCorpus.CHUNK_ROWS)) {
+			int nRows = corpus.getNumberOfRows();
+			int shardRows = ((nRows + shards - 1) / shards + 63) / 64 * 64;
+			long from = (long) shard * shardRows;
+			if (from >= nRows) {
+				return new CompiledCorpus(corpus.getNumberOfRules(), 0, new int[0], new int[1], new long[0], new int[0]);
+			}
+			return corpus.readChunk((int) from, (int) Math.min(from + shardRows, nRows));
+		}
+	}
+
+	/**
+	 * @return port of localhost where the worker waits for the RemoteCorpus
+	 */
+	public int getPort() {
+		return server.getLocalPort();
+	}
+
+	/**
+	 * Answers the requests of each connection until a request with 0 solutions, or until close()
+	 */
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				try (Socket socket = server.accept()) {
+					socket.setTcpNoDelay(true);
+					if (!serve(socket)) {
+						return;
+					}
+				}
+			}
+		} catch (IOException e) {
+			if (!server.isClosed()) {
+				e.printStackTrace();
+			}
+		} finally {
+			try {
+				close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * @return false if the worker was asked to stop, true if the connection was closed
+	 */
+	private boolean serve(Socket socket) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+		int nRules = shard.getNumberOfRules();
+		out.writeInt(nRules);
+		out.flush();
+
+		while (true) {
+			int size;
+			try {
+				size = in.readInt();
+			} catch (EOFException e) {
+				return true;
+			}
+			if (size == 0) {
+				return false;
+			}
+			int threshold = in.readInt();
+			double[] matrix = new double[nRules * size];
+			for (int i = 0; i < matrix.length; i++) {
+				matrix[i] = in.readDouble();
+			}
+			for (int count : shard.countPopulation(matrix, size, threshold)) {
+				out.writeInt(count);
+			}
+			out.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		server.close();
+	}
+
+	/**
+	 * Starts a worker with a shard of a corpus cache, printing "PORT n" when it is ready for the RemoteCorpus.
+	 *
+	 * Usage: EvaluationWorker cache shard shards
+	 *
+	 * @param args path of the corpus cache, number of the shard and number of shards
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3) {
+			System.out.println("Usage: EvaluationWorker cache shard shards");
+			return;
+		}
+		CompiledCorpus shard = read_shard(new File(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+		EvaluationWorker worker = new EvaluationWorker(shard);
+		System.out.println("PORT " + worker.getPort());
+		System.out.flush();
+		worker.run();
+	}
+}
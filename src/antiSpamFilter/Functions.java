@@ -8,6 +8,7 @@ import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Scanner;
 
@@ -140,7 +141,7 @@ public class Functions {
 	public static Double evaluate_solution(int type, ArrayList<String> rules, ArrayList<Double> solution, ArrayList<ArrayList<String>> result){
 		double total = 0.0;
 		for (ArrayList<String> line : result) {
-			Double sum = 0.0;
+			double sum = 0.0;
 			for (String rule : line) {
 				int index = rules.indexOf(rule);
 				if (index!=-1){		
@@ -161,6 +162,21 @@ public class Functions {
 		return total;
 	}
 
+	/**
+	 * Maps every rule of rules.cf to its position in the rules array, so that a rule name can be resolved
+	 * without searching the whole array. If a rule is repeated, the first position is kept (like rules.indexOf()).
+	 * 
+	 * @param rules inside rules.cf (result of get_rules())
+	 * @return map from rule name to its index
+	 */
+	public static HashMap<String, Integer> rules_index(ArrayList<String> rules){
+		HashMap<String, Integer> index = new HashMap<>(rules.size() * 2);
+		for (int i = 0; i < rules.size(); i++) {
+			index.putIfAbsent(rules.get(i), i);
+		}
+		return index;
+	}
+
 	/**
 	 * Chooses the best solution to a Mixed (Professional and Leisure) Mailbox
 	 * 
@@ -0,0 +1,191 @@
+package antiSpamFilter;
+
+import java.util.Arrays;
+
+/**
+ * <p> Evaluates weights incrementally from previously evaluated ones.
+ * <p> It keeps a small pool of evaluated weight vectors together with the score of every row. A new vector
+ * is compared with the pool and, if it differs from one of them in only a few rules, only the rows that
+ * break those rules (found in the inverted index of the corpus) are scored again. Otherwise the whole corpus
+ * is scanned. The touched rows are scored again from the corpus, so the result is always the same as
+ * CompiledCorpus.evaluate().
+ * <p> Not thread safe, each thread must have its own IncrementalEvaluator.
+ */
+public class IncrementalEvaluator {
+
+	private final CompiledCorpus corpus;
+	private final double[][] weights;
+	private final double[][] scores;
+	private final int[][] falseValues;
+	private int size = 0;
+	private int next = 0;
+
+	private final int[] marks;
+	private int stamp = 0;
+
+	private long fullEvaluations = 0;
+	private long incrementalEvaluations = 0;
+
+	/**
+	 * @param corpus compiled ham.log and spam.log
+	 * @param poolSize number of evaluated weight vectors kept
+	 */
+	public IncrementalEvaluator(CompiledCorpus corpus, int poolSize) {
+		if (poolSize < 1) {
+			throw new IllegalArgumentException("poolSize must be at least 1");
+		}
+		this.corpus = corpus;
+		this.weights = new double[poolSize][];
+		this.scores = new double[poolSize][];
+		this.falseValues = new int[poolSize][];
+		this.marks = new int[corpus.getNumberOfRows()];
+		corpus.buildInvertedIndex();
+	}
+
+	/**
+	 * Evaluates the weights, incrementally if there is a close enough vector in the pool
+	 *
+	 * @param solution weight of each rule, in the order of rules.cf
+	 * @return {FP, FN}
+	 */
+	public double[] evaluate(double[] solution) {
+		double[] fx = new double[2];
+		evaluate(solution, fx);
+		return fx;
+	}
+
+	/**
+	 * Evaluates the weights like evaluate(solution), writing {FP, FN} to fx. Once the pool is full nothing
+	 * is allocated.
+	 *
+	 * @param solution weight of each rule, in the order of rules.cf
+	 * @param fx array where {FP, FN} is written
+	 */
+	public void evaluate(double[] solution, double[] fx) {
+		int[] ruleOffsets = corpus.getRuleOffsets();
+		int nRows = corpus.getNumberOfRows();
+		int hits = corpus.getNumberOfHits();
+		double rowLength = nRows == 0 ? 0.0 : (double) hits / nRows;
+
+		// An incremental evaluation copies the scores of the parent and reads again the touched rows, so it is
+		// only used when that is clearly cheaper than reading all the hits
+		long budget = (long) ((hits / 2.0 - nRows / 4.0) / Math.max(rowLength, 1.0));
+		int parent = -1;
+		long bestCost = budget;
+		for (int p = 0; p < size; p++) {
+			long cost = 0;
+			double[] w = weights[p];
+			for (int r = 0; r < solution.length && cost < bestCost; r++) {
+				if (w[r] != solution[r]) {
+					cost += ruleOffsets[r + 1] - ruleOffsets[r];
+				}
+			}
+			if (cost < bestCost) {
+				bestCost = cost;
+				parent = p;
+			}
+		}
+
+		int slot = next;
+		next = (next + 1) % weights.length;
+		if (size < weights.length) {
+			size++;
+			weights[slot] = new double[solution.length];
+			scores[slot] = new double[nRows];
+			falseValues[slot] = new int[2];
+		}
+
+		if (parent == -1) {
+			fullEvaluations++;
+			evaluateFull(solution, slot);
+		} else {
+			incrementalEvaluations++;
+			evaluateFrom(parent, solution, slot);
+		}
+		System.arraycopy(solution, 0, weights[slot], 0, solution.length);
+
+		fx[0] = falseValues[slot][0];
+		fx[1] = falseValues[slot][1];
+	}
+
+	/**
+	 * Scores every row of the corpus into the slot
+	 */
+	private void evaluateFull(double[] solution, int slot) {
+		double[] s = scores[slot];
+		int fp = 0;
+		int fn = 0;
+		for (int e = 0; e < s.length; e++) {
+			s[e] = corpus.score(e, solution);
+			if (corpus.isSpam(e)) {
+				if (s[e] < CompiledCorpus.SPAM_THRESHOLD) { // FN
+					fn += corpus.getCount(e);
+				}
+			} else {
+				if (s[e] > CompiledCorpus.SPAM_THRESHOLD) { // FP
+					fp += corpus.getCount(e);
+				}
+			}
+		}
+		falseValues[slot][0] = fp;
+		falseValues[slot][1] = fn;
+	}
+
+	/**
+	 * Starts from the scores of the parent and scores again only the rows that break a rule whose
+	 * weight changed
+	 */
+	private void evaluateFrom(int parent, double[] solution, int slot) {
+		int[] ruleOffsets = corpus.getRuleOffsets();
+		int[] ruleEmails = corpus.getRuleEmails();
+		double[] parentWeights = weights[parent];
+		double[] s = scores[slot];
+		if (slot != parent) {
+			System.arraycopy(scores[parent], 0, s, 0, s.length);
+		}
+		int fp = falseValues[parent][0];
+		int fn = falseValues[parent][1];
+
+		if (++stamp == 0) {
+			Arrays.fill(marks, 0);
+			stamp = 1;
+		}
+		for (int r = 0; r < solution.length; r++) {
+			if (parentWeights[r] == solution[r]) {
+				continue;
+			}
+			for (int i = ruleOffsets[r]; i < ruleOffsets[r + 1]; i++) {
+				int e = ruleEmails[i];
+				if (marks[e] == stamp) {
+					continue;
+				}
+				marks[e] = stamp;
+
+				double score = corpus.score(e, solution);
+				int count = corpus.getCount(e);
+				if (corpus.isSpam(e)) {
+					fn += count * ((score < CompiledCorpus.SPAM_THRESHOLD ? 1 : 0) - (s[e] < CompiledCorpus.SPAM_THRESHOLD ? 1 : 0));
+				} else {
+					fp += count * ((score > CompiledCorpus.SPAM_THRESHOLD ? 1 : 0) - (s[e] > CompiledCorpus.SPAM_THRESHOLD ? 1 : 0));
+				}
+				s[e] = score;
+			}
+		}
+		falseValues[slot][0] = fp;
+		falseValues[slot][1] = fn;
+	}
+
+	/**
+	 * @return number of evaluations that scanned the whole corpus
+	 */
+	public long getFullEvaluations() {
+		return fullEvaluations;
+	}
+
+	/**
+	 * @return number of evaluations done from a vector of the pool
+	 */
+	public long getIncrementalEvaluations() {
+		return incrementalEvaluations;
+	}
+}
@@ -10,10 +10,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Scanner;
-import java.awt.event.MouseWheelEvent;
-import java.awt.event.MouseWheelListener;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
@@ -24,8 +22,12 @@ import javax.swing.JButton;
 import javax.swing.JFileChooser;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 
-import javax.swing.JTextArea;
+import javax.swing.JTable;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
 import java.awt.GridBagLayout;
 import java.awt.GridBagConstraints;
 import java.awt.Insets;
@@ -45,10 +47,14 @@ public class Interface {
 	private JTextField aFalseNegativeField;
 	
 	//Rules/Weights text areas
-	private JTextArea mRulesTextArea;
-	private JTextArea mWeightTextArea;
-	private JTextArea aRulesTextArea;
-	private JTextArea aWeightTextArea;
+	private RuleTableModel ruleTableModel;
+	private JTable mRulesTable;
+	private JTable aRulesTable;
+
+	//Corpus of the selected files, kept between tests
+	private final CorpusHolder corpusHolder = new CorpusHolder();
+	private SwingWorker<IncrementalEvaluator, Void> corpusLoader;
+	private double[] pendingTest; //manual weights to test once the corpus is loaded
 	
 	//Validate paths
 	private boolean spamPathOk;
@@ -63,8 +69,13 @@ public class Interface {
 	private JButton testButton;
 	private JButton mSaveButton;
 	private JButton generateButton;
+	private JButton cancelButton;
 	private JButton aSaveButton;
 
+	//Progress of the automatic configuration
+	private JLabel progressLabel;
+	private OptimizationProgress progress;
+
 
 	/**
 	 * Create the application.
@@ -77,10 +88,7 @@ public class Interface {
 	 * Clears the manual and automatic configuration fields.
 	 */
 	private void clearFields(){
-		mRulesTextArea.setText("");
-		mWeightTextArea.setText("");
-		aRulesTextArea.setText("");
-		aWeightTextArea.setText("");
+		ruleTableModel.clear();
 	}
 
 	/**
@@ -94,14 +102,15 @@ public class Interface {
 	
 	/**
 	 * Changes the rules.cf file path. Checks if Rules Path is valid before
-	 * writing all rules and weights in textAreas, if not returns an error
-	 * message and clears the path and textAreas.
+	 * showing all rules and weights in the tables, if not returns an error
+	 * message and clears the path and tables.
 	 */
 	protected void changeRules(){
 		JFileChooser jc = new JFileChooser();
 		int returnVal = jc.showOpenDialog(frame);
 		if (returnVal == JFileChooser.APPROVE_OPTION) {
-			mWeightTextArea.setEditable(false);
+			ruleTableModel.setWeightsEditable(false);
+			corpusHolder.invalidate();
 			try {
 				Scanner sc = new Scanner(new File(jc.getSelectedFile().getAbsolutePath()));
 				String line;
@@ -126,17 +135,10 @@ public class Interface {
 				SwingUtilities.invokeLater(new Runnable() {
 					public void run() {
 						rulesPath.setText(jc.getSelectedFile().getAbsolutePath());
-						for (String r : rules) {
-							mRulesTextArea.setText(mRulesTextArea.getText() + r + "\n");
-							aRulesTextArea.setText(aRulesTextArea.getText() + r + "\n");
-						}
-						for (String w : weights) {
-							mWeightTextArea.setText(mWeightTextArea.getText() + w + "\n");
-							aWeightTextArea.setText(aWeightTextArea.getText() + w + "\n");
-						}
+						ruleTableModel.setRules(rules, weights);
 					}
 				});
-				mWeightTextArea.setEditable(true);
+				ruleTableModel.setWeightsEditable(true);
 			} catch (FileNotFoundException e) {
 				fileNotFound();
 			}
@@ -153,14 +155,22 @@ public class Interface {
 		int returnVal = jc.showOpenDialog(frame);
 
 		if (returnVal == JFileChooser.APPROVE_OPTION) {
-			hamPath.setText(jc.getSelectedFile().getAbsolutePath());
-			hamPathOk = true;
+			setHam(jc.getSelectedFile().getAbsolutePath());
 		} else {
 			hamPath.setText("");
 			hamPathOk = false;
 		}
 	}
 
+	/**
+	 * Uses the ham.log file at the given path.
+	 */
+	void setHam(String path) {
+		hamPath.setText(path);
+		hamPathOk = true;
+		corpusHolder.invalidate();
+	}
+
 	/**
 	 * Changes the spam.log file.
 	 */
@@ -169,13 +179,21 @@ public class Interface {
 		int returnVal = jc.showOpenDialog(frame);
 
 		if (returnVal == JFileChooser.APPROVE_OPTION) {
-			spamPath.setText(jc.getSelectedFile().getAbsolutePath());
-			spamPathOk = true;
+			setSpam(jc.getSelectedFile().getAbsolutePath());
 		} else {
 			spamPath.setText("");
 			spamPathOk = false;
 		}
 	}
+
+	/**
+	 * Uses the spam.log file at the given path.
+	 */
+	void setSpam(String path) {
+		spamPath.setText(path);
+		spamPathOk = true;
+		corpusHolder.invalidate();
+	}
 	
 	/**
 	 * Changes the directory where miktex-texworks.exe should be in order to render Latex files with 
@@ -279,30 +297,149 @@ public class Interface {
 	}
 
 	/**
-	 * Evaluates solutions, called after pressing "generate" button
+	 * Evaluates the manual weights again after one of them is edited, so FP and FN are shown without
+	 * pressing "Test". Only the emails that break the edited rule are scored again (see IncrementalEvaluator).
+	 * FP and FN are cleared while a weight is not valid, and nothing is done until both logs are chosen.
+	 */
+	private void liveTest() {
+		if (!hamPathOk || !spamPathOk) {
+			return;
+		}
+		ArrayList<String> weights = ruleTableModel.getWeights();
+		double[] solution = new double[weights.size()];
+		for (int i = 0; i < solution.length; i++) {
+			try {
+				solution[i] = Double.parseDouble(weights.get(i));
+			} catch (NumberFormatException e) {
+				solution[i] = Double.NaN;
+			}
+			if (!(solution[i] >= -5 && solution[i] <= 5)) {
+				pendingTest = null;
+				mFalsePosField.setText("");
+				mFalseNegField.setText("");
+				return;
+			}
+		}
+		manualTest(solution);
+	}
+
+	/**
+	 * Shows FP and FN of the manual weights. Only the evaluation runs on the EDT: while the corpus is not
+	 * loaded, it is loaded on a SwingWorker (see CorpusHolder), FP and FN are cleared and the last weights
+	 * asked for are evaluated once it is done.
+	 *
+	 * @param solution weight of each rule, in the order of rules.cf
+	 */
+	private void manualTest(double[] solution) {
+		ArrayList<String> rules = ruleTableModel.getRules();
+		String ham = hamPath.getText();
+		String spam = spamPath.getText();
+		IncrementalEvaluator evaluator = corpusHolder.loaded(rules, ham, spam);
+		if (evaluator != null) {
+			pendingTest = null;
+			double[] fx = evaluator.evaluate(solution);
+			mFalsePosField.setText(Double.toString(fx[0]));
+			mFalseNegField.setText(Double.toString(fx[1]));
+			return;
+		}
+		pendingTest = solution;
+		mFalsePosField.setText("");
+		mFalseNegField.setText("");
+		if (corpusLoader != null) {
+			return;
+		}
+		corpusLoader = new SwingWorker<IncrementalEvaluator, Void>() {
+			@Override
+			protected IncrementalEvaluator doInBackground() throws IOException {
+				return corpusHolder.evaluator(rules, ham, spam);
+			}
+
+			@Override
+			protected void done() {
+				corpusLoader = null;
+				try {
+					get();
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+					return;
+				} catch (ExecutionException e) {
+					pendingTest = null;
+					if (e.getCause() instanceof IOException) {
+						fileNotFound();
+					} else {
+						e.printStackTrace();
+					}
+					return;
+				}
+				if (pendingTest != null) {
+					manualTest(pendingTest);
+				}
+			}
+		};
+		corpusLoader.execute();
+	}
+
+	/**
+	 * Evaluates solutions, called after pressing "generate" button. The experiment runs on a SwingWorker, so
+	 * the window keeps responding, and its progress is shown next to the "Automatic Implementation" label
+	 * until it ends or the "Cancel" button is pressed.
 	 */
 	private void automaticEvaluation() {
 		String[] latexPaths = changeLatex();
 		if (rScriptPathOK && miktexPathOK) {
-			try {
-				String[] args = { rulesPath.getText(), hamPath.getText(), spamPath.getText() };
-				AntiSpamFilterAutomaticConfiguration.main(args);
-				SwingUtilities.invokeLater(new Runnable(){
-					public void run(){
-						try {
-							ScriptGenerator.generateR(latexPaths[0]);
-							ScriptGenerator.generatorLatex(latexPaths[1]);
-							System.out.println("RScript/Latex generators are done!!");
-						} catch (IOException e) {
-							System.out.println("WARNING: RScript/Latex FAILURE");
-						}		
+			String[] args = { rulesPath.getText(), hamPath.getText(), spamPath.getText() };
+			AntiSpamFilterAutomaticConfiguration.Settings settings = AntiSpamFilterAutomaticConfiguration.Settings.parse(args);
+			OptimizationProgress runProgress = new OptimizationProgress();
+			progress = runProgress;
+
+			generateButton.setEnabled(false);
+			cancelButton.setEnabled(true);
+			ruleTableModel.clearOptimizedWeights();
+			progressLabel.setText("Starting...");
+			Timer timer = new Timer(500, new ActionListener() {
+				@Override
+				public void actionPerformed(ActionEvent arg0) {
+					showProgress(runProgress);
+				}
+			});
+
+			SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
+				@Override
+				protected Boolean doInBackground() {
+					if (!AntiSpamFilterAutomaticConfiguration.run(settings, runProgress)) {
+						return false;
 					}
-				});
+					try {
+						ScriptGenerator.generateR(latexPaths[0]);
+						ScriptGenerator.generatorLatex(latexPaths[1]);
+						System.out.println("RScript/Latex generators are done!!");
+					} catch (IOException e) {
+						System.out.println("WARNING: RScript/Latex FAILURE");
+					}
+					return true;
+				}
 
-				
-			} catch (IOException e) {
-				e.printStackTrace();
-			} 
+				@Override
+				protected void done() {
+					timer.stop();
+					cancelButton.setEnabled(false);
+					generateButton.setEnabled(true);
+					try {
+						if (get()) {
+							showProgress(runProgress);
+							showAutomaticResult(settings.outputDirectory + "/referenceFronts");
+						} else {
+							progressLabel.setText(runProgress.isCancelled() ? "Cancelled" : "Failed");
+							ruleTableModel.clearOptimizedWeights();
+						}
+					} catch (InterruptedException | ExecutionException e) {
+						e.printStackTrace();
+						progressLabel.setText("Failed");
+					}
+				}
+			};
+			timer.start();
+			worker.execute();
 		}
 		else{
 			System.out.println("WARNING - user attempted to use the automatic module without latex/rscript??");
@@ -312,6 +449,66 @@ public class Interface {
 		}
 	}
 
+	/**
+	 * Shows the progress of the automatic configuration in the progress label
+	 */
+	private void showProgress(OptimizationProgress runProgress) {
+		String text = String.format("Run %d, generation %d, %.0f evaluations/s", runProgress.getRun(),
+				runProgress.getGeneration(), runProgress.getEvaluationsPerSecond());
+		double[] best = runProgress.getBest();
+		if (best != null) {
+			text += String.format(", best FP %.0f FN %.0f", best[0], best[1]);
+		}
+		String stopReason = runProgress.getStopReason();
+		if (stopReason != null) {
+			text += ", last run stopped: " + stopReason;
+		}
+		progressLabel.setText(text);
+	}
+
+	/**
+	 * Shows the best solution found by the automatic configuration (see choose_solution()) with its FP and FN
+	 *
+	 * @param referenceFronts directory with AntiSpamFilterProblem.NSGAII.rf and AntiSpamFilterProblem.NSGAII.rs
+	 */
+	private void showAutomaticResult(String referenceFronts) {
+		try {
+			int solution = Functions.choose_solution(referenceFronts + "/AntiSpamFilterProblem.NSGAII.rf");
+			ArrayList<Double> weights = Functions.get_solution(solution,
+					referenceFronts + "/AntiSpamFilterProblem.NSGAII.rs");
+			ruleTableModel.setOptimizedWeights(weights);
+			String[] temp = Functions.getFalseValues(solution, referenceFronts + "/AntiSpamFilterProblem.NSGAII.rf");
+			aFalsePositiveField.setText(temp[0]);
+			aFalseNegativeField.setText(temp[1]);
+		} catch (FileNotFoundException e) {
+			fileNotFound();
+		}
+	}
+
+	/**
+	 * Creates a table of the rules, sharing ruleTableModel with the other table
+	 *
+	 * @param hiddenColumn column of the model that this table doesn't show
+	 * @return the table
+	 */
+	private JTable ruleTable(int hiddenColumn) {
+		JTable table = new JTable(ruleTableModel);
+		table.setAutoCreateColumnsFromModel(false);
+		table.removeColumn(table.getColumnModel().getColumn(hiddenColumn));
+		table.getTableHeader().setReorderingAllowed(false);
+		table.setFillsViewportHeight(true);
+		return table;
+	}
+
+	/**
+	 * Commits the weight being edited in the manual table, if any, so it is tested/saved
+	 */
+	private void stopEditing() {
+		if (mRulesTable.isEditing()) {
+			mRulesTable.getCellEditor().stopCellEditing();
+		}
+	}
+
 	/**
 	 * Initialize the contents of the frame.
 	 */
@@ -583,7 +780,7 @@ public class Interface {
 		mFalseNegField.setColumns(10);
 
 		/**
-		 * [Manual] Panel for the 2 text areas(Rules name & respective weights)
+		 * [Manual] Panel for the table of the rules and their weights
 		 */
 		JPanel manRulesPanel = new JPanel();
 		GridBagConstraints gbc_manRulesPanel = new GridBagConstraints();
@@ -592,39 +789,24 @@ public class Interface {
 		gbc_manRulesPanel.gridx = 1;
 		gbc_manRulesPanel.gridy = 0;
 		manualPanel.add(manRulesPanel, gbc_manRulesPanel);
-		manRulesPanel.setLayout(new GridLayout(0, 2, 2, 0));
-
-		/**
-		 * [Manual] Rules name textArea
-		 */
-		mRulesTextArea = new JTextArea();
-		mRulesTextArea.setEditable(false);
-
-		/**
-		 * [Manual] Rules weights textArea (editable when rules.fc is valid)
-		 */
-		mWeightTextArea = new JTextArea();
-		mWeightTextArea.setEditable(false);
+		manRulesPanel.setLayout(new GridLayout(0, 1, 0, 0));
 
 		/**
-		 * [Manual] Scroll for BOTH manual textAreas Redirects Wheels events
-		 * from Rules textArea to Weight textArea. Keep in mind that both text
-		 * areas must be the same Height to scrolls to work
+		 * [Manual] Table of the rules and their current weights (editable when
+		 * rules.cf is valid). Only the visible rows are rendered.
 		 */
-		JScrollPane mRuleScrollPane = new JScrollPane(mRulesTextArea, JScrollPane.VERTICAL_SCROLLBAR_NEVER,
-				JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-		JScrollPane mWeightScrollPane = new JScrollPane(mWeightTextArea, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
-				JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-		mRuleScrollPane.getHorizontalScrollBar().setModel(mWeightScrollPane.getHorizontalScrollBar().getModel());
-		mRuleScrollPane.getVerticalScrollBar().setModel(mWeightScrollPane.getVerticalScrollBar().getModel());
-		mRuleScrollPane.setWheelScrollingEnabled(false);
-		mRuleScrollPane.addMouseWheelListener(new MouseWheelListener() {
-			public void mouseWheelMoved(MouseWheelEvent e) {
-				mWeightScrollPane.dispatchEvent(e);
+		ruleTableModel = new RuleTableModel();
+		ruleTableModel.addTableModelListener(new TableModelListener() {
+			@Override
+			public void tableChanged(TableModelEvent e) {
+				if (e.getType() == TableModelEvent.UPDATE && e.getColumn() == RuleTableModel.WEIGHT
+						&& e.getFirstRow() == e.getLastRow()) {
+					liveTest();
+				}
 			}
 		});
-		manRulesPanel.add(mRuleScrollPane);
-		manRulesPanel.add(mWeightScrollPane);
+		mRulesTable = ruleTable(RuleTableModel.OPTIMIZED_WEIGHT);
+		manRulesPanel.add(new JScrollPane(mRulesTable));
 
 		/**
 		 * [Manual] Buttons Panel
@@ -646,21 +828,16 @@ public class Interface {
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
 				if (checkPaths()) {
-					try {
-						String[] allRules = mRulesTextArea.getText().split("\n");
-						ArrayList<String> rules = new ArrayList<String>(Arrays.asList(allRules));
-
-						String[] allWeights = mWeightTextArea.getText().split("\n");
-						ArrayList<String> weights = new ArrayList<String>(Arrays.asList(allWeights));
-						ArrayList<Double> weightsD = toDoubleValidWeights(weights, rules.size());
-						if (weightsD != null) {
-							mFalsePosField.setText((Functions.evaluate_solution(0, rules, weightsD,
-									Functions.file_to_array(hamPath.getText()))).toString());
-							mFalseNegField.setText((Functions.evaluate_solution(1, rules, weightsD,
-									Functions.file_to_array(spamPath.getText()))).toString());
+					stopEditing();
+					ArrayList<String> rules = ruleTableModel.getRules();
+					ArrayList<String> weights = ruleTableModel.getWeights();
+					ArrayList<Double> weightsD = toDoubleValidWeights(weights, rules.size());
+					if (weightsD != null) {
+						double[] weightsArray = new double[weightsD.size()];
+						for (int i = 0; i < weightsD.size(); i++) {
+							weightsArray[i] = weightsD.get(i);
 						}
-					} catch (FileNotFoundException e) {
-						fileNotFound();
+						manualTest(weightsArray);
 					}
 				}
 			}
@@ -675,12 +852,11 @@ public class Interface {
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
 				try {
-					String[] allWeights = mWeightTextArea.getText().split("\n");
-					ArrayList<String> weights = new ArrayList<String>(Arrays.asList(allWeights));
-					ArrayList<Double> weightsD = toDoubleValidWeights(weights,
-							mRulesTextArea.getText().split("\n").length);
+					stopEditing();
+					ArrayList<Double> weightsD = toDoubleValidWeights(ruleTableModel.getWeights(),
+							ruleTableModel.getRowCount());
 					if (weightsD != null)
-						Functions.write_weights_and_rules(rulesPath.getText(), mRulesTextArea.getText(), weightsD);
+						Functions.write_weights_and_rules(rulesPath.getText(), ruleTableModel.getRulesText(), weightsD);
 				} catch (IOException e) {
 					fileNotFound();
 				}
@@ -705,6 +881,12 @@ public class Interface {
 		JLabel autoLabel = new JLabel("Automatic Implementation");
 		auto.add(autoLabel);
 
+		/**
+		 * Label with the progress of the automatic configuration.
+		 */
+		progressLabel = new JLabel("");
+		auto.add(progressLabel);
+
 		/**
 		 * Panel for Auto interface. Has the result panel, 2 text areas (for
 		 * rules names & his weights), and buttons.
@@ -795,7 +977,7 @@ public class Interface {
 		aFalseNegativeField.setColumns(10);
 
 		/**
-		 * [Auto] Panel for the 2 text areas(Rules name & respective weights).
+		 * [Auto] Panel for the table of the rules and their optimized weights.
 		 */
 		JPanel autoRulesPanel = new JPanel();
 		GridBagConstraints gbc_autoRulesPanel = new GridBagConstraints();
@@ -804,38 +986,13 @@ public class Interface {
 		gbc_autoRulesPanel.gridx = 1;
 		gbc_autoRulesPanel.gridy = 0;
 		autoPanel.add(autoRulesPanel, gbc_autoRulesPanel);
-		autoRulesPanel.setLayout(new GridLayout(0, 2, 2, 0));
-
-		/**
-		 * [Auto] Rules name textArea.
-		 */
-		aRulesTextArea = new JTextArea();
-		aRulesTextArea.setEditable(false);
+		autoRulesPanel.setLayout(new GridLayout(0, 1, 0, 0));
 
 		/**
-		 * [Auto] Rules weights textArea.
+		 * [Auto] Table of the rules and their optimized weights.
 		 */
-		aWeightTextArea = new JTextArea();
-		aWeightTextArea.setEditable(false);
-
-		/**
-		 * [Auto] Scroll for BOTH auto text areas. Keep in mind that both text
-		 * areas must be the same Height to scrolls to work
-		 */
-		JScrollPane aRuleScrollPane = new JScrollPane(aRulesTextArea, JScrollPane.VERTICAL_SCROLLBAR_NEVER,
-				JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-		JScrollPane aWeightScrollPane = new JScrollPane(aWeightTextArea, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
-				JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-		aRuleScrollPane.getHorizontalScrollBar().setModel(aWeightScrollPane.getHorizontalScrollBar().getModel());
-		aRuleScrollPane.getVerticalScrollBar().setModel(aWeightScrollPane.getVerticalScrollBar().getModel());
-		aRuleScrollPane.setWheelScrollingEnabled(false);
-		aRuleScrollPane.addMouseWheelListener(new MouseWheelListener() {
-			public void mouseWheelMoved(MouseWheelEvent e) {
-				aWeightScrollPane.dispatchEvent(e);
-			}
-		});
-		autoRulesPanel.add(aRuleScrollPane);
-		autoRulesPanel.add(aWeightScrollPane);
+		aRulesTable = ruleTable(RuleTableModel.WEIGHT);
+		autoRulesPanel.add(new JScrollPane(aRulesTable));
 
 		/**
 		 * [Auto] Buttons panel.
@@ -846,7 +1003,7 @@ public class Interface {
 		gbc_autoButtonsPanel.gridx = 2;
 		gbc_autoButtonsPanel.gridy = 0;
 		autoPanel.add(autoButtonsPanel, gbc_autoButtonsPanel);
-		autoButtonsPanel.setLayout(new GridLayout(2, 0, 0, 0));
+		autoButtonsPanel.setLayout(new GridLayout(3, 0, 0, 0));
 
 		/**
 		 * [Auto] Generate Button
@@ -857,37 +1014,29 @@ public class Interface {
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
 				if (checkPaths()) {
-					generateButton.setEnabled(false);
-					aWeightTextArea.setText(
-							"Generating weights...");
-					SwingUtilities.invokeLater(new Runnable() {
-						public void run() {
-							try {
-								automaticEvaluation();
-								int solution = Functions.choose_solution(
-										"experimentBaseDirectory/referenceFronts/AntiSpamFilterProblem.NSGAII.rf");
-								ArrayList<Double> weights = Functions.get_solution(solution,
-										"experimentBaseDirectory/referenceFronts/AntiSpamFilterProblem.NSGAII.rs");
-								aWeightTextArea.setText("");
-								for (Double w : weights) {
-									aWeightTextArea.setText(aWeightTextArea.getText() + w + "\n");
-								}
-								String[] temp = Functions.getFalseValues(solution,
-										"experimentBaseDirectory/referenceFronts/AntiSpamFilterProblem.NSGAII.rf");
-								aFalsePositiveField.setText(temp[0]);
-								aFalseNegativeField.setText(temp[1]);
-								
-							} catch (FileNotFoundException e) {
-								fileNotFound();
-							}
-							generateButton.setEnabled(true);	
-						}
-					});
+					automaticEvaluation();
 				}
 				
 			}
 		});
 
+		/**
+		 * [Auto] Cancel Button (stops the automatic configuration before its next population)
+		 */
+		cancelButton = new JButton("Cancel");
+		cancelButton.setEnabled(false);
+		autoButtonsPanel.add(cancelButton);
+		cancelButton.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent arg0) {
+				if (progress != null) {
+					progress.cancel();
+					cancelButton.setEnabled(false);
+					progressLabel.setText("Cancelling...");
+				}
+			}
+		});
+
 		/**
 		 * [Auto] Save Button
 		 */
@@ -897,12 +1046,10 @@ public class Interface {
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
 				try {
-					String[] allWeights = aWeightTextArea.getText().split("\n");
-					ArrayList<String> weights = new ArrayList<String>(Arrays.asList(allWeights));
-					ArrayList<Double> weightsD = toDoubleValidWeights(weights,
-							aRulesTextArea.getText().split("\n").length);
+					ArrayList<Double> weightsD = toDoubleValidWeights(ruleTableModel.getOptimizedWeights(),
+							ruleTableModel.getRowCount());
 					if (weightsD != null){
-						Functions.write_weights_and_rules("./AntiSpamConfigurationForBalancedProfessionalAndLeisureMailbox/rules.cf", aRulesTextArea.getText(),weightsD);
+						Functions.write_weights_and_rules("./AntiSpamConfigurationForBalancedProfessionalAndLeisureMailbox/rules.cf", ruleTableModel.getRulesText(),weightsD);
 					}
 				} catch (IOException e) {
 					e.printStackTrace();
@@ -978,35 +1125,35 @@ public class Interface {
 	}
 
 	/**
-	 * Getter to manual Rules text area
-	 * @return mRulesTextArea
+	 * Getter to the model of the rules tables
+	 * @return ruleTableModel
 	 */
-	public JTextArea getmRulesTextArea() {
-		return mRulesTextArea;
+	public RuleTableModel getRuleTableModel() {
+		return ruleTableModel;
 	}
 
 	/**
-	 * Getter to manual Weight text area
-	 * @return mWeightTextArea
+	 * Getter to the SwingWorker loading the corpus of the live test, only to be called on the EDT
+	 * @return corpusLoader, null if the corpus is not being loaded
 	 */
-	public JTextArea getmWeightTextArea() {
-		return mWeightTextArea;
+	SwingWorker<IncrementalEvaluator, Void> getCorpusLoader() {
+		return corpusLoader;
 	}
 
 	/**
-	 * Getter to auto Rules text area
-	 * @return aRulesTextArea
+	 * Getter to manual Rules table
+	 * @return mRulesTable
 	 */
-	public JTextArea getaRulesTextArea() {
-		return aRulesTextArea;
+	public JTable getmRulesTable() {
+		return mRulesTable;
 	}
 
 	/**
-	 * Getter to auto Weight text area
-	 * @return aWeightTextArea
+	 * Getter to auto Rules table
+	 * @return aRulesTable
 	 */
-	public JTextArea getaWeightTextArea() {
-		return aWeightTextArea;
+	public JTable getaRulesTable() {
+		return aRulesTable;
 	}
 
 	/**
@@ -1073,6 +1220,22 @@ public class Interface {
 		return generateButton;
 	}
 
+	/**
+	 * Getter to Cancel Button
+	 * @return cancelButton
+	 */
+	public JButton getCancelButton() {
+		return cancelButton;
+	}
+
+	/**
+	 * Getter to the progress label of the automatic configuration
+	 * @return progressLabel
+	 */
+	public JLabel getProgressLabel() {
+		return progressLabel;
+	}
+
 	/**
 	 * Getter to auto save Button
 	 * @return aSaveButton
@@ -4,7 +4,14 @@ import static org.junit.Assert.*;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 import org.junit.Test;
 
@@ -92,8 +99,8 @@ public class InterfaceTest {
 				temp2+=s + "\n";
 			}
 			
-			assertEquals(temp1, testSubject.getmRulesTextArea().getText());
-			assertEquals(temp2, testSubject.getmWeightTextArea().getText());
+			assertEquals(temp1, testSubject.getRuleTableModel().getRulesText());
+			assertEquals(temp2, testSubject.getRuleTableModel().getWeightsText());
 			
 		}	catch (InterruptedException e) {
 				e.printStackTrace();
@@ -301,8 +308,8 @@ public class InterfaceTest {
 				temp2+=s + "\n";
 			}
 			
-			assertEquals(temp1, testSubject.getmRulesTextArea().getText());
-			assertEquals(temp2, testSubject.getmWeightTextArea().getText());
+			assertEquals(temp1, testSubject.getRuleTableModel().getRulesText());
+			assertEquals(temp2, testSubject.getRuleTableModel().getWeightsText());
 			
 		}	catch (InterruptedException e) {
 				e.printStackTrace();
@@ -310,5 +317,55 @@ public class InterfaceTest {
 			e.printStackTrace();
 		}
 	}
-	
+
+	/**
+	 * Edits the first manual weight of the test rules.cf with both logs chosen, as the rules table does, without
+	 * pressing "Test". To test this it was verified if FP and FN are shown once the corpus is loaded in the
+	 * background, and if they are the ones of the whole corpus with the edited weight.
+	 * @throws IOException
+	 * @throws InvocationTargetException
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testLiveTest() throws IOException, InvocationTargetException, InterruptedException {
+		System.out.println("===TEST LIVE FP/FN FROM MANUAL IMPLEMENTATION===");
+		String rules_path = "jUnitTests/TestFiles/rules.cf";
+		String ham_path = "jUnitTests/TestFiles/ham.log";
+		String spam_path = "jUnitTests/TestFiles/spam.log";
+		Interface testSubject = new Interface();
+		ArrayList<String> rules = Functions.get_rules(rules_path);
+		ArrayList<String> weights = Functions.get_weights(rules_path);
+		CountDownLatch shown = new CountDownLatch(1);
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				testSubject.getRuleTableModel().setRules(rules, weights);
+				testSubject.getRuleTableModel().setWeightsEditable(true);
+				testSubject.setHam(ham_path);
+				testSubject.setSpam(spam_path);
+				testSubject.getRuleTableModel().setValueAt("-4.5", 0, RuleTableModel.WEIGHT);
+				SwingWorker<IncrementalEvaluator, Void> loader = testSubject.getCorpusLoader();
+				if (loader == null) {
+					shown.countDown();
+				} else {
+					// The worker becomes DONE on the EDT after its done() shows FP and FN
+					loader.addPropertyChangeListener(event -> {
+						if (event.getNewValue() == SwingWorker.StateValue.DONE) {
+							shown.countDown();
+						}
+					});
+				}
+			}
+		});
+		assertTrue("failure - corpus should be loaded", shown.await(10, TimeUnit.SECONDS));
+
+		double[] solution = new double[weights.size()];
+		for (int i = 0; i < solution.length; i++) {
+			solution[i] = Double.parseDouble(weights.get(i));
+		}
+		solution[0] = -4.5;
+		double[] expected = LogParser.parse(rules, ham_path, spam_path).evaluate(solution);
+		assertEquals(Double.toString(expected[0]), testSubject.getmFalsePosField().getText());
+		assertEquals(Double.toString(expected[1]), testSubject.getmFalseNegField().getText());
+	}
+
 }
@@ -0,0 +1,107 @@
+package antiSpamFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.uma.jmetal.algorithm.Algorithm;
+import org.uma.jmetal.solution.DoubleSolution;
+import org.uma.jmetal.util.JMetalException;
+import org.uma.jmetal.util.archive.impl.NonDominatedSolutionListArchive;
+
+/**
+ * <p> Island model of NSGA-II: a single optimization where each island (IslandNSGAII) evolves its own
+ * population on its own thread (as long as there are enough threads) and they exchange non-dominated solutions through a MigrationExchange.
+ * <p> The result is the non-dominated front of the results of all the islands, so it is written by the
+ * experiment (FUN, VAR and referenceFronts) like the result of a single NSGA-II.
+ */
+public class IslandModel implements Algorithm<List<DoubleSolution>> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final List<IslandNSGAII> islands;
+	private final int threads;
+	private List<DoubleSolution> result;
+
+	/**
+	 * @param islands sharing the same MigrationExchange
+	 * @param threads maximum number of islands running at the same time
+	 */
+	public IslandModel(List<IslandNSGAII> islands, int threads) {
+		if (islands.isEmpty()) {
+			throw new IllegalArgumentException("There must be at least one island");
+		}
+		this.islands = islands;
+		this.threads = Math.max(1, Math.min(threads, islands.size()));
+	}
+
+	/**
+	 * Runs the islands on up to threads threads until all of them end. If an island fails (e.g. the
+	 * optimization was cancelled) its exception is thrown after the other islands end.
+	 * The exchange and the surrogate are shared by the islands of a run, so they are reset first.
+	 */
+	@Override
+	public void run() {
+		islands.get(0).getExchange().clear();
+		islands.get(0).resetSurrogate();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (IslandNSGAII island : islands) {
+				futures.add(executor.submit(island));
+			}
+			RuntimeException failure = null;
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+								: new JMetalException(e.getCause().toString());
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new JMetalException("Island model interrupted");
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		NonDominatedSolutionListArchive<DoubleSolution> front = new NonDominatedSolutionListArchive<>();
+		for (IslandNSGAII island : islands) {
+			for (DoubleSolution solution : island.getResult()) {
+				front.add(solution);
+			}
+		}
+		result = front.getSolutionList();
+	}
+
+	@Override
+	public List<DoubleSolution> getResult() {
+		return result;
+	}
+
+	@Override
+	public String getName() {
+		return "NSGAII";
+	}
+
+	@Override
+	public String getDescription() {
+		return "NSGA-II island model with " + islands.size() + " islands";
+	}
+
+	/**
+	 * @return the islands
+	 */
+	public List<IslandNSGAII> getIslands() {
+		return islands;
+	}
+}
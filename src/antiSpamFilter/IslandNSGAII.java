@@ -0,0 +1,83 @@
+package antiSpamFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.uma.jmetal.algorithm.multiobjective.nsgaii.NSGAIIBuilder;
+import org.uma.jmetal.solution.DoubleSolution;
+
+/**
+ * <p> NSGA-II island of an IslandModel, stopping like any AntiSpamFilterNSGAII.
+ * <p> Every migrationInterval generations it sends copies of some of its non-dominated solutions to the next
+ * island and takes the ones sent by the previous island, which compete with its population in the usual
+ * NSGA-II replacement (ranking and crowding distance). The migrants were already evaluated, so they don't
+ * count as evaluations.
+ */
+public class IslandNSGAII extends AntiSpamFilterNSGAII {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient MigrationExchange<DoubleSolution> exchange;
+	private final int island;
+	private final int migrationInterval;
+	private final int migrants;
+
+	/**
+	 * @param builder with the problem, operators, evaluations and population of the island
+	 * @param termination of the island
+	 * @param progress told why the island stopped, null for none
+	 * @param exchange shared by the islands
+	 * @param island number of this island in the exchange
+	 * @param migrationInterval generations between migrations
+	 * @param migrants maximum number of solutions sent in each migration
+	 */
+	public IslandNSGAII(NSGAIIBuilder<DoubleSolution> builder, Termination termination, OptimizationProgress progress,
+			MigrationExchange<DoubleSolution> exchange, int island, int migrationInterval, int migrants) {
+		super(builder, termination, progress);
+		this.exchange = exchange;
+		this.island = island;
+		this.migrationInterval = migrationInterval;
+		this.migrants = migrants;
+	}
+
+	@Override
+	protected boolean isIsland() {
+		return true;
+	}
+
+	@Override
+	protected void updateProgress() {
+		super.updateProgress();
+		if (getGeneration() % migrationInterval == 0 && !isStopping()) {
+			migrate();
+		}
+	}
+
+	/**
+	 * @return exchange shared by the islands
+	 */
+	MigrationExchange<DoubleSolution> getExchange() {
+		return exchange;
+	}
+
+	/**
+	 * Sends the first non-dominated solutions to the next island and adds the ones of the previous island
+	 */
+	private void migrate() {
+		List<DoubleSolution> front = getNonDominatedSolutions(getPopulation());
+		List<DoubleSolution> sent = new ArrayList<>();
+		for (int i = 0; i < front.size() && i < migrants; i++) {
+			sent.add((DoubleSolution) front.get(i).copy());
+		}
+		exchange.emigrate(island, sent);
+
+		List<DoubleSolution> received = exchange.immigrate(island);
+		if (received != null && !received.isEmpty()) {
+			List<DoubleSolution> copies = new ArrayList<>();
+			for (DoubleSolution solution : received) {
+				copies.add((DoubleSolution) solution.copy());
+			}
+			setPopulation(replacement(getPopulation(), copies));
+		}
+	}
+}
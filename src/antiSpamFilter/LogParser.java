@@ -0,0 +1,246 @@
+package antiSpamFilter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * <p> Parses ham.log and spam.log straight into a CompiledCorpus, without regular expressions or Strings.
+ * <p> The log is read through a direct ByteBuffer and every byte is scanned once: tabs and spaces separate the
+ * tokens (the first token of a line is the email and the others are rules, like file_to_array()), and each
+ * rule is resolved to its index in rules.cf by hashing its bytes while they are scanned.
+ * <p> Lines end in \n, \r\n or \r. The rule names are compared as UTF-8 bytes.
+ */
+public class LogParser {
+
+	private static final int BUFFER_SIZE = 1 << 22;
+
+	private static final int FNV_OFFSET = 0x811c9dc5;
+	private static final int FNV_PRIME = 0x01000193;
+
+	private final RuleDictionary dictionary;
+	private final int bufferSize;
+	private final int emptyRule;
+	private int pendingEmpty = 0;
+
+	/**
+	 * @param rules inside rules.cf (result of get_rules())
+	 */
+	public LogParser(ArrayList<String> rules) {
+		this(rules, BUFFER_SIZE);
+	}
+
+	LogParser(ArrayList<String> rules, int bufferSize) {
+		this.dictionary = new RuleDictionary(rules);
+		this.bufferSize = bufferSize;
+		this.emptyRule = rules.indexOf("");
+	}
+
+	/**
+	 * Parses ham.log and spam.log into a corpus compiled against the rules
+	 *
+	 * @param rules inside rules.cf (result of get_rules())
+	 * @param ham_path of ham.log
+	 * @param spam_path of spam.log
+	 * @return the compiled corpus, the same as new CompiledCorpus(rules, file_to_array(ham), file_to_array(spam))
+	 * @throws IOException
+	 */
+	public static CompiledCorpus parse(ArrayList<String> rules, String ham_path, String spam_path)
+			throws IOException {
+		LogParser parser = new LogParser(rules);
+		CompiledCorpus.Builder builder = new CompiledCorpus.Builder(rules.size());
+		parser.parse(new File(ham_path), builder, false);
+		parser.parse(new File(spam_path), builder, true);
+		return builder.build();
+	}
+
+	/**
+	 * Parses a log, adding each line as an email to the sink
+	 *
+	 * @param log ham.log or spam.log
+	 * @param sink receives the emails (a CompiledCorpus.Builder, or a cache file being written)
+	 * @param spam true if the log is spam.log
+	 * @throws IOException
+	 */
+	void parse(File log, Sink sink, boolean spam) throws IOException {
+		try (FileInputStream in = new FileInputStream(log); FileChannel channel = in.getChannel()) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+
+			int tokenStart = 0; // start of the token being scanned, in the buffer
+			int tokenIndex = 0; // 0 is the email, the following ones are rules
+			int hash = FNV_OFFSET;
+			boolean pendingLine = false;
+			boolean afterCR = false;
+			int i = 0;
+
+			while (true) {
+				int read = channel.read(buffer);
+				int limit = buffer.position();
+				for (; i < limit; i++) {
+					byte b = buffer.get(i);
+					if (b == ' ' || b == '\t') {
+						if (tokenIndex > 0) {
+							addRule(buffer, tokenStart, i, hash, sink);
+						}
+						tokenIndex++;
+						tokenStart = i + 1;
+						hash = FNV_OFFSET;
+						pendingLine = true;
+					} else if (b == '\n' || b == '\r') {
+						if (b == '\r' || !afterCR) {
+							if (tokenIndex > 0) {
+								addRule(buffer, tokenStart, i, hash, sink);
+							}
+							sink.endEmail(spam);
+						}
+						pendingEmpty = 0;
+						tokenIndex = 0;
+						tokenStart = i + 1;
+						hash = FNV_OFFSET;
+						pendingLine = false;
+					} else {
+						hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+						pendingLine = true;
+					}
+					afterCR = b == '\r';
+				}
+
+				if (read == -1) {
+					break;
+				}
+
+				// Keeps only the token being scanned, growing the buffer if it is the whole buffer
+				if (tokenStart == 0 && limit == buffer.capacity()) {
+					ByteBuffer bigger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+					buffer.flip();
+					bigger.put(buffer);
+					buffer = bigger;
+				} else {
+					buffer.limit(limit).position(tokenStart);
+					buffer.compact();
+					i -= tokenStart;
+					tokenStart = 0;
+				}
+			}
+
+			if (pendingLine) {
+				if (tokenIndex > 0) {
+					addRule(buffer, tokenStart, i, hash, sink);
+				}
+				sink.endEmail(spam);
+			}
+			pendingEmpty = 0;
+		}
+	}
+
+	/**
+	 * Adds the rule in buffer[start..end[ to the email being built. Empty tokens (two separators in a row)
+	 * only count if another rule follows them in the line, like the empty Strings of split().
+	 */
+	private void addRule(ByteBuffer buffer, int start, int end, int hash, Sink sink) throws IOException {
+		if (start == end) {
+			pendingEmpty++;
+			return;
+		}
+		for (; pendingEmpty > 0; pendingEmpty--) {
+			if (emptyRule != -1) {
+				sink.add(emptyRule);
+			}
+		}
+		int id = dictionary.lookup(buffer, start, end, hash);
+		if (id != -1) {
+			sink.add(id);
+		}
+	}
+
+	/**
+	 * Receives the emails of a log: the rule indexes of an email are given with add() and the email is closed
+	 * with endEmail().
+	 */
+	interface Sink {
+
+		/**
+		 * Adds a rule index to the email being built
+		 */
+		void add(int id) throws IOException;
+
+		/**
+		 * Closes the email being built
+		 *
+		 * @param spam true if the email came from spam.log
+		 */
+		void endEmail(boolean spam) throws IOException;
+	}
+
+	/**
+	 * Open addressing table from the UTF-8 bytes of the rule names to their index in rules.cf. If a rule is
+	 * repeated, the first index is kept (like rules.indexOf()).
+	 */
+	static class RuleDictionary {
+
+		private final byte[][] names;
+		private final int[] hashes;
+		private final int[] ids;
+		private final int mask;
+
+		RuleDictionary(ArrayList<String> rules) {
+			int capacity = Integer.highestOneBit(Math.max(rules.size(), 1)) << 2;
+			names = new byte[capacity][];
+			hashes = new int[capacity];
+			ids = new int[capacity];
+			mask = capacity - 1;
+
+			for (int r = 0; r < rules.size(); r++) {
+				byte[] name = rules.get(r).getBytes(StandardCharsets.UTF_8);
+				int hash = FNV_OFFSET;
+				for (byte b : name) {
+					hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+				}
+				int slot = hash & mask;
+				while (names[slot] != null && !(hashes[slot] == hash && Arrays.equals(names[slot], name))) {
+					slot = (slot + 1) & mask;
+				}
+				if (names[slot] == null) {
+					names[slot] = name;
+					hashes[slot] = hash;
+					ids[slot] = r;
+				}
+			}
+		}
+
+		/**
+		 * @param buffer with the rule name
+		 * @param start of the name (inclusive)
+		 * @param end of the name (exclusive)
+		 * @param hash FNV-1a hash of the name
+		 * @return index of the rule in rules.cf, -1 if it is not there
+		 */
+		int lookup(ByteBuffer buffer, int start, int end, int hash) {
+			int slot = hash & mask;
+			while (names[slot] != null) {
+				if (hashes[slot] == hash && matches(names[slot], buffer, start, end)) {
+					return ids[slot];
+				}
+				slot = (slot + 1) & mask;
+			}
+			return -1;
+		}
+
+		private static boolean matches(byte[] name, ByteBuffer buffer, int start, int end) {
+			if (name.length != end - start) {
+				return false;
+			}
+			for (int i = 0; i < name.length; i++) {
+				if (name[i] != buffer.get(start + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class LogParserTest {
+
+	String rules_path = "jUnitTests/TestFiles/rules.cf";
+	String ham_path = "jUnitTests/TestFiles/ham.log";
+	String spam_path = "jUnitTests/TestFiles/spam.log";
+
+	private final TestCorpus files = new TestCorpus();
+
+	/**
+	 * Deletes the temporary files of the test
+	 */
+	@After
+	public void deleteFiles() {
+		files.delete();
+	}
+
+	/**
+	 * Checks if both corpus have the same emails, in the same order, breaking the same rules.
+	 */
+	private void assertSameCorpus(CompiledCorpus expected, CompiledCorpus actual) {
+		assertEquals(expected.getNumberOfEmails(), actual.getNumberOfEmails());
+		assertEquals(expected.getNumberOfRules(), actual.getNumberOfRules());
+		assertArrayEquals(expected.getRuleIds(), actual.getRuleIds());
+		assertArrayEquals(expected.getRowOffsets(), actual.getRowOffsets());
+		assertArrayEquals(expected.getRowCounts(), actual.getRowCounts());
+		for (int e = 0; e < expected.getNumberOfRows(); e++) {
+			assertEquals(expected.isSpam(e), actual.isSpam(e));
+		}
+	}
+
+	/**
+	 * Parses the test ham.log and spam.log. To test this it was verified if the corpus is the same as the one
+	 * compiled from file_to_array().
+	 * @throws IOException
+	 */
+	@Test
+	public final void testParse() throws IOException {
+		ArrayList<String> rules = Functions.get_rules(rules_path);
+		CompiledCorpus expected = new CompiledCorpus(rules, Functions.file_to_array(ham_path),
+				Functions.file_to_array(spam_path));
+		assertSameCorpus(expected, LogParser.parse(rules, ham_path, spam_path));
+	}
+
+	/**
+	 * Parses generated logs of 5000 emails each, more than the builder starts with room for. To test this it
+	 * was verified if the arrays grown while parsing give the same corpus as the one compiled from
+	 * file_to_array() and if they are handed over trimmed to their size.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testParseGrowing() throws IOException {
+		String[] paths = files.generate("parser", 50, 5000, 17);
+		ArrayList<String> rules = Functions.get_rules(paths[0]);
+		CompiledCorpus expected = new CompiledCorpus(rules, Functions.file_to_array(paths[1]),
+				Functions.file_to_array(paths[2]));
+		CompiledCorpus corpus = LogParser.parse(rules, paths[1], paths[2]);
+		assertSameCorpus(expected, corpus);
+		assertEquals(corpus.getRowOffsets()[corpus.getNumberOfRows()], corpus.getRuleIds().length);
+		assertEquals(corpus.getNumberOfRows(), corpus.getRowCounts().length);
+		assertEquals((corpus.getNumberOfRows() + 63) >>> 6, corpus.getSpamLabels().length);
+	}
+
+	/**
+	 * Parses a log with \r\n and \r line ends, blank lines, leading and repeated separators, unknown rules and
+	 * no line end in the last line, with a buffer of 8 bytes. To test this it was verified if the corpus is
+	 * the same as the one compiled from file_to_array().
+	 * @throws IOException
+	 */
+	@Test
+	public final void testUnusualLines() throws IOException {
+		ArrayList<String> rules = new ArrayList<>();
+		rules.add("A_RULE");
+		rules.add("B");
+		rules.add("A_VERY_LONG_RULE_NAME");
+		rules.add("B");
+
+		File dir = files.directory("parser");
+		File ham = new File(dir, "ham.log");
+		File spam = new File(dir, "spam.log");
+		String log = "e1\tA_RULE B\r\n\r\n  B\tA_RULE\ne2\t\tB  A_VERY_LONG_RULE_NAME\t\r"
+				+ "e3 UNKNOWN\tA_VERY_LONG_RULE_NAME A_RULE\ne4\tB A_RULE";
+		for (File file : new File[] { ham, spam }) {
+			try (FileOutputStream out = new FileOutputStream(file)) {
+				out.write(log.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		CompiledCorpus expected = new CompiledCorpus(rules, Functions.file_to_array(ham.getPath()),
+				Functions.file_to_array(spam.getPath()));
+		CompiledCorpus.Builder builder = new CompiledCorpus.Builder(rules.size(), 1, 1);
+		LogParser parser = new LogParser(rules, 8);
+		parser.parse(ham, builder, false);
+		parser.parse(spam, builder, true);
+		assertSameCorpus(expected, builder.build());
+	}
+}
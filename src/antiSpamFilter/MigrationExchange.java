@@ -0,0 +1,67 @@
+package antiSpamFilter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p> Exchange of solutions between the islands of an IslandModel, in a ring: island i sends its migrants to
+ * island i + 1 (and the last one to the first).
+ * <p> Each island has a slot with the last migrants it sent, which the next island takes when it migrates.
+ * Nothing is locked and no island waits for another: migrants that are not taken before the island sends
+ * new ones are replaced, and an island that finds no migrants goes on without them.
+ *
+ * @param <S> type of the solutions
+ */
+public class MigrationExchange<S> {
+
+	private final AtomicReferenceArray<List<S>> slots;
+
+	/**
+	 * @param islands number of islands
+	 */
+	public MigrationExchange(int islands) {
+		if (islands < 1) {
+			throw new IllegalArgumentException("There must be at least one island");
+		}
+		this.slots = new AtomicReferenceArray<>(islands);
+	}
+
+	/**
+	 * Sends migrants to the next island, replacing the ones it didn't take yet
+	 *
+	 * @param island sending the migrants
+	 * @param migrants solutions sent (copies, they are not changed by the island that takes them)
+	 */
+	public void emigrate(int island, List<S> migrants) {
+		slots.set(island, Collections.unmodifiableList(new ArrayList<>(migrants)));
+	}
+
+	/**
+	 * Takes the migrants sent by the previous island
+	 *
+	 * @param island taking the migrants
+	 * @return the migrants, null if there are none since the last time
+	 */
+	public List<S> immigrate(int island) {
+		int previous = (island == 0 ? slots.length() : island) - 1;
+		return slots.getAndSet(previous, null);
+	}
+
+	/**
+	 * Drops the migrants nobody took, so a new run doesn't take the migrants of the previous one
+	 */
+	public void clear() {
+		for (int i = 0; i < slots.length(); i++) {
+			slots.set(i, null);
+		}
+	}
+
+	/**
+	 * @return number of islands
+	 */
+	public int getNumberOfIslands() {
+		return slots.length();
+	}
+}
@@ -0,0 +1,73 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MigrationExchangeTest {
+
+	/**
+	 * Sends migrants around a ring of 3 islands. To test this it was verified if each island takes the
+	 * migrants of the previous one only once, and if migrants not taken are replaced by newer ones or dropped
+	 * by clear().
+	 */
+	@Test
+	public final void testRing() {
+		MigrationExchange<String> exchange = new MigrationExchange<>(3);
+		assertNull(exchange.immigrate(1));
+
+		exchange.emigrate(0, Arrays.asList("a1", "a2"));
+		exchange.emigrate(2, Arrays.asList("c1"));
+		assertEquals(Arrays.asList("a1", "a2"), exchange.immigrate(1));
+		assertNull("failure - migrants should be taken only once", exchange.immigrate(1));
+		assertEquals(Arrays.asList("c1"), exchange.immigrate(0));
+		assertNull(exchange.immigrate(2));
+
+		exchange.emigrate(1, Arrays.asList("b1"));
+		exchange.emigrate(1, Arrays.asList("b2"));
+		assertEquals(Arrays.asList("b2"), exchange.immigrate(2));
+
+		exchange.emigrate(0, Arrays.asList("a3"));
+		exchange.clear();
+		assertNull("failure - migrants should be dropped by clear()", exchange.immigrate(1));
+	}
+
+	/**
+	 * Migrates concurrently from 4 threads. To test this it was verified if no migrant is taken twice and
+	 * every taken migrant came from the previous island.
+	 * @throws InterruptedException
+	 */
+	@Test
+	public final void testConcurrent() throws InterruptedException {
+		int islands = 4;
+		MigrationExchange<Integer> exchange = new MigrationExchange<>(islands);
+		boolean[][] taken = new boolean[islands][10000];
+		boolean[] failed = new boolean[1];
+		Thread[] threads = new Thread[islands];
+		for (int t = 0; t < islands; t++) {
+			int island = t;
+			threads[t] = new Thread(() -> {
+				int previous = (island + islands - 1) % islands;
+				for (int g = 0; g < 10000; g++) {
+					exchange.emigrate(island, Arrays.asList(island * 10000 + g));
+					List<Integer> received = exchange.immigrate(island);
+					if (received != null) {
+						int migrant = received.get(0);
+						if (migrant / 10000 != previous || taken[previous][migrant % 10000]) {
+							failed[0] = true;
+						}
+						taken[previous][migrant % 10000] = true;
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertFalse("failure - a migrant was taken twice or by the wrong island", failed[0]);
+	}
+}
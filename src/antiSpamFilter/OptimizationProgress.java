@@ -0,0 +1,142 @@
+package antiSpamFilter;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.uma.jmetal.solution.DoubleSolution;
+
+/**
+ * <p> Progress of the NSGA-II runs of an experiment, updated by AntiSpamFilterSolutionListEvaluator after each
+ * population is evaluated and by AntiSpamFilterNSGAII after each generation, and read by the Interface while the
+ * runs go on.
+ * <p> cancel() makes the evaluator stop the runs (with a CancellationException) before the next population.
+ */
+public class OptimizationProgress {
+
+	private final AtomicLong evaluations = new AtomicLong();
+	private volatile boolean cancelled = false;
+	private volatile long startTime = System.nanoTime();
+	private volatile int run = 1;
+	private volatile int generation = 0;
+	private double[] best; // {FP, FN} with the lowest FP + FN in the run
+	private volatile String stopReason;
+
+	/**
+	 * Starts counting the evaluations of the runs
+	 */
+	void start() {
+		this.startTime = System.nanoTime();
+		this.run = 1;
+		this.generation = 0;
+		evaluations.set(0);
+		synchronized (this) {
+			best = null;
+		}
+	}
+
+	/**
+	 * Records the generation a run (or island) reached. When a new run starts its best solution is forgotten.
+	 *
+	 * @param run number of the run (1 for the first)
+	 * @param generation of the run (0 is the initial population)
+	 */
+	void generation(int run, int generation) {
+		synchronized (this) {
+			if (run != this.run) {
+				best = null;
+			}
+		}
+		this.run = run;
+		this.generation = generation;
+	}
+
+	/**
+	 * Counts the evaluations of a population and keeps the best solution. Solutions with estimated FP/FN
+	 * (racing or surrogate) were not evaluated, so they are neither counted nor kept.
+	 *
+	 * @param population evaluated solutions
+	 */
+	void update(List<DoubleSolution> population) {
+		int evaluated = 0;
+		synchronized (this) {
+			for (DoubleSolution solution : population) {
+				if (RacingEvaluator.isEstimated(solution)) {
+					continue; // only exact FP/FN are shown
+				}
+				evaluated++;
+				double fp = solution.getObjective(0);
+				double fn = solution.getObjective(1);
+				if (best == null || fp + fn < best[0] + best[1] || (fp + fn == best[0] + best[1] && fp < best[0])) {
+					best = new double[] { fp, fn };
+				}
+			}
+		}
+		evaluations.addAndGet(evaluated);
+	}
+
+	/**
+	 * Records why a run stopped
+	 *
+	 * @param reason given by the Termination of the run
+	 */
+	void stopped(String reason) {
+		stopReason = reason;
+	}
+
+	/**
+	 * @return why the last run (or island) that stopped did, null if none stopped yet
+	 */
+	public String getStopReason() {
+		return stopReason;
+	}
+
+	/**
+	 * Asks the runs to stop before the next population is evaluated
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return true if cancel() was called
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @return number of solutions evaluated by all the runs
+	 */
+	public long getEvaluations() {
+		return evaluations.get();
+	}
+
+	/**
+	 * @return evaluations per second since the runs started
+	 */
+	public double getEvaluationsPerSecond() {
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		return seconds > 0 ? evaluations.get() / seconds : 0.0;
+	}
+
+	/**
+	 * @return run being executed (1 for the first)
+	 */
+	public int getRun() {
+		return run;
+	}
+
+	/**
+	 * @return generation of the run being executed (0 is the initial population)
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * @return {FP, FN} of the best solution (lowest FP + FN) evaluated so far by the run, null if there is none yet
+	 */
+	public synchronized double[] getBest() {
+		return best == null ? null : best.clone();
+	}
+}
@@ -0,0 +1,83 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.uma.jmetal.solution.DoubleSolution;
+
+public class OptimizationProgressTest {
+
+	private final TestCorpus files = new TestCorpus();
+
+	/**
+	 * Deletes the temporary files of the test
+	 */
+	@After
+	public void deleteFiles() {
+		files.delete();
+	}
+
+	/**
+	 * @return solutions of the problem with the {FP, FN}, the ones with estimated true marked as estimated
+	 */
+	private static List<DoubleSolution> population(AntiSpamFilterProblem problem, double[][] fx, boolean[] estimated) {
+		List<DoubleSolution> population = new ArrayList<>();
+		for (int p = 0; p < fx.length; p++) {
+			DoubleSolution solution = problem.createSolution();
+			solution.setObjective(0, fx[p][0]);
+			solution.setObjective(1, fx[p][1]);
+			if (estimated[p]) {
+				solution.setAttribute(RacingEvaluator.ESTIMATED, "estimate");
+			}
+			population.add(solution);
+		}
+		return population;
+	}
+
+	/**
+	 * Updates the progress with a population where the best FP/FN are estimated. To test this it was verified
+	 * if only the exact solutions are counted as evaluations and kept as the best.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testUpdate() throws IOException {
+		String[] paths = files.generate("progress", 5, 10, 1);
+		AntiSpamFilterProblem problem = new AntiSpamFilterProblem(5, paths[0], paths[1], paths[2]);
+		OptimizationProgress progress = new OptimizationProgress();
+		progress.start();
+		progress.update(population(problem, new double[][] { { 0, 1 }, { 3, 2 }, { 2, 2 } },
+				new boolean[] { true, false, false }));
+		assertEquals("failure - estimated solution should not be counted", 2, progress.getEvaluations());
+		assertArrayEquals(new double[] { 2, 2 }, progress.getBest(), 0.0);
+	}
+
+	/**
+	 * Updates the progress in two runs. To test this it was verified if the best FP/FN are kept between the
+	 * generations of a run and forgotten when the next run starts.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testGeneration() throws IOException {
+		String[] paths = files.generate("progress", 5, 10, 1);
+		AntiSpamFilterProblem problem = new AntiSpamFilterProblem(5, paths[0], paths[1], paths[2]);
+		OptimizationProgress progress = new OptimizationProgress();
+		progress.start();
+		progress.generation(1, 0);
+		progress.update(population(problem, new double[][] { { 1, 1 } }, new boolean[] { false }));
+		progress.generation(1, 1);
+		progress.update(population(problem, new double[][] { { 4, 4 } }, new boolean[] { false }));
+		assertArrayEquals("failure - best of the run should be kept", new double[] { 1, 1 }, progress.getBest(), 0.0);
+
+		progress.generation(2, 0);
+		assertNull("failure - best of the last run should be forgotten", progress.getBest());
+		progress.update(population(problem, new double[][] { { 4, 4 } }, new boolean[] { false }));
+		assertArrayEquals(new double[] { 4, 4 }, progress.getBest(), 0.0);
+		assertEquals(2, progress.getRun());
+		assertEquals(3, progress.getEvaluations());
+	}
+}
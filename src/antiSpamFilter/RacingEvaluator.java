@@ -0,0 +1,255 @@
+package antiSpamFilter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.uma.jmetal.solution.DoubleSolution;
+
+/**
+ * <p> Racing of the offspring on a sample of the corpus, so that offspring that are certainly dominated are not
+ * evaluated in full.
+ * <p> The sample is stratified: the emails are split by log and by number of rules hit, and the same fraction of
+ * every stratum is taken (systematically, following the order of the corpus). The FP of a candidate is estimated
+ * from the ham emails of the sample and the FN from the spam ones, each scaled to its log, with a margin of
+ * confidence standard errors. A candidate is evaluated in full only if its optimistic estimate (estimate minus
+ * margin) is not dominated by a solution that was evaluated exactly; the others keep their estimates, marked with
+ * the ESTIMATED attribute, and are evaluated exactly if they survive the replacement of the population (see
+ * AntiSpamFilterNSGAII).
+ * <p> Thread safe, it can be shared by the independent runs and the islands of an experiment.
+ */
+public class RacingEvaluator {
+
+	/**
+	 * Attribute of the solutions whose objectives are estimates, its value is the RacingEvaluator (or the
+	 * SurrogateModel) that estimated them
+	 */
+	public static final String ESTIMATED = "RacingEvaluator.ESTIMATED";
+
+	// Strata of the number of rules hit by an email, the last one takes every email with more hits
+	private static final int HIT_STRATA = 16;
+
+	private final CompiledCorpus sample;
+	private final int nHam;
+	private final int nSpam;
+	private final int sampleHam;
+	private final int sampleSpam;
+	private final double confidence;
+	private long candidates = 0;
+	private long full = 0;
+
+	/**
+	 * @param sample emails of the sample
+	 * @param nHam number of ham emails of the corpus
+	 * @param nSpam number of spam emails of the corpus
+	 * @param confidence standard errors of the margin of the estimates
+	 */
+	RacingEvaluator(CompiledCorpus sample, int nHam, int nSpam, double confidence) {
+		this.sample = sample;
+		this.nHam = nHam;
+		this.nSpam = nSpam;
+		this.confidence = confidence;
+		int spam = 0;
+		for (int e = 0; e < sample.getNumberOfRows(); e++) {
+			if (sample.isSpam(e)) {
+				spam += sample.getCount(e);
+			}
+		}
+		this.sampleSpam = spam;
+		this.sampleHam = sample.getNumberOfEmails() - spam;
+	}
+
+	/**
+	 * Takes a stratified sample of an in-memory corpus
+	 *
+	 * @param corpus compiled corpus
+	 * @param fraction of the emails of each stratum that are in the sample, in ]0, 1]
+	 * @param confidence standard errors of the margin of the estimates
+	 * @return the racing evaluator
+	 */
+	public static RacingEvaluator sample(CompiledCorpus corpus, double fraction, double confidence) {
+		Sampler sampler = new Sampler(corpus.getNumberOfRules(), fraction);
+		sampler.add(corpus);
+		return sampler.build(confidence);
+	}
+
+	/**
+	 * Takes a stratified sample of the cache file of a corpus, one chunk at a time
+	 *
+	 * @param stream cache of the corpus
+	 * @param fraction of the emails of each stratum that are in the sample, in ]0, 1]
+	 * @param confidence standard errors of the margin of the estimates
+	 * @return the racing evaluator
+	 * @throws IOException
+	 */
+	public static RacingEvaluator sample(StreamingCorpus stream, double fraction, double confidence)
+			throws IOException {
+		Sampler sampler = new Sampler(stream.getNumberOfRules(), fraction);
+		for (int from = 0; from < stream.getNumberOfRows(); from += StreamingCorpus.CHUNK_ROWS) {
+			sampler.add(stream.readChunk(from, Math.min(from + StreamingCorpus.CHUNK_ROWS, stream.getNumberOfRows())));
+		}
+		return sampler.build(confidence);
+	}
+
+	/**
+	 * Estimates {FP, FN} of the solutions on the sample
+	 *
+	 * @param solutions weights of each solution, in the order of rules.cf
+	 * @return {FP, FN, FP margin, FN margin} of each solution
+	 */
+	public double[][] estimate(double[][] solutions) {
+		int size = solutions.length;
+		int[] count = sample.countPopulation(CompiledCorpus.transpose(solutions, sample.getNumberOfRules()), size, 0);
+		double[][] estimates = new double[size][];
+		for (int p = 0; p < size; p++) {
+			estimates[p] = new double[] { scale(count[p], sampleHam, nHam), scale(count[size + p], sampleSpam, nSpam),
+					margin(count[p], sampleHam, nHam), margin(count[size + p], sampleSpam, nSpam) };
+		}
+		return estimates;
+	}
+
+	/**
+	 * @return number of false values in the whole log, estimated from the ones in the sample
+	 */
+	private static double scale(int sampled, int nSample, int n) {
+		return nSample == 0 ? 0.0 : (double) sampled * n / nSample;
+	}
+
+	/**
+	 * @return margin of the estimate, confidence standard errors of a proportion sampled without replacement
+	 */
+	private double margin(int sampled, int nSample, int n) {
+		if (nSample == 0) {
+			return n;
+		}
+		double p = (double) sampled / nSample;
+		// p (1 - p) is 0 when nothing (or everything) of the sample is false, so it is at least 1 / nSample
+		double variance = Math.max(p * (1 - p), 1.0 / nSample) / nSample * (1 - (double) nSample / n);
+		return confidence * n * Math.sqrt(variance);
+	}
+
+	/**
+	 * Decides which candidates are evaluated in full
+	 *
+	 * @param estimates result of estimate() for the candidates
+	 * @param reference exact {FP, FN} of solutions already evaluated
+	 * @return true for the candidates whose optimistic estimate is not dominated by a reference solution
+	 */
+	public boolean[] race(double[][] estimates, double[][] reference) {
+		boolean[] survivors = new boolean[estimates.length];
+		int nSurvivors = 0;
+		for (int p = 0; p < estimates.length; p++) {
+			double fp = Math.max(estimates[p][0] - estimates[p][2], 0);
+			double fn = Math.max(estimates[p][1] - estimates[p][3], 0);
+			survivors[p] = true;
+			for (double[] r : reference) {
+				if (r[0] <= fp && r[1] <= fn && (r[0] < fp || r[1] < fn)) {
+					survivors[p] = false;
+					break;
+				}
+			}
+			if (survivors[p]) {
+				nSurvivors++;
+			}
+		}
+		synchronized (this) {
+			candidates += estimates.length;
+			full += nSurvivors;
+		}
+		return survivors;
+	}
+
+	/**
+	 * @param solution evaluated solution
+	 * @return true if its objectives are estimates
+	 */
+	public static boolean isEstimated(DoubleSolution solution) {
+		return solution.getAttribute(ESTIMATED) != null;
+	}
+
+	/**
+	 * Counts solutions that were estimated and then had to be evaluated in full (see AntiSpamFilterNSGAII)
+	 *
+	 * @param evaluated number of solutions
+	 */
+	public synchronized void countFull(int evaluated) {
+		full += evaluated;
+	}
+
+	/**
+	 * @return number of candidates raced
+	 */
+	public synchronized long getCandidates() {
+		return candidates;
+	}
+
+	/**
+	 * @return number of candidates evaluated in full
+	 */
+	public synchronized long getFullEvaluations() {
+		return full;
+	}
+
+	/**
+	 * @return fraction of the full evaluations of the candidates that were saved
+	 */
+	public synchronized double getSaved() {
+		return candidates == 0 ? 0.0 : Math.max(candidates - full, 0) / (double) candidates;
+	}
+
+	/**
+	 * @return number of emails of the sample
+	 */
+	public int getSampleSize() {
+		return sample.getNumberOfEmails();
+	}
+
+	/**
+	 * Takes the same fraction of every stratum (log and number of rules hit) of the rows it is given, keeping how
+	 * far each stratum is from its next email between chunks
+	 */
+	private static class Sampler {
+
+		private final double fraction;
+		private final CompiledCorpus.Builder builder;
+		private final double[] next = new double[2 * HIT_STRATA];
+		private int nHam = 0;
+		private int nSpam = 0;
+
+		Sampler(int nRules, double fraction) {
+			if (fraction <= 0 || fraction > 1) {
+				throw new IllegalArgumentException("the fraction of the sample must be in ]0, 1]");
+			}
+			this.fraction = fraction;
+			this.builder = new CompiledCorpus.Builder(nRules, 1024, 4096);
+			Arrays.fill(next, 0.5); // the middle email of each step, not the first
+		}
+
+		void add(CompiledCorpus corpus) {
+			int[] ruleIds = corpus.getRuleIds();
+			int[] rowOffsets = corpus.getRowOffsets();
+			for (int e = 0; e < corpus.getNumberOfRows(); e++) {
+				boolean spam = corpus.isSpam(e);
+				int count = corpus.getCount(e);
+				if (spam) {
+					nSpam += count;
+				} else {
+					nHam += count;
+				}
+				int stratum = (spam ? HIT_STRATA : 0) + Math.min(rowOffsets[e + 1] - rowOffsets[e], HIT_STRATA - 1);
+				next[stratum] += count * fraction;
+				int taken = (int) next[stratum];
+				next[stratum] -= taken;
+				for (int t = 0; t < taken; t++) { // repeated emails become a single row again
+					for (int i = rowOffsets[e]; i < rowOffsets[e + 1]; i++) {
+						builder.add(ruleIds[i]);
+					}
+					builder.endEmail(spam);
+				}
+			}
+		}
+
+		RacingEvaluator build(double confidence) {
+			return new RacingEvaluator(builder.build(), nHam, nSpam, confidence);
+		}
+	}
+}
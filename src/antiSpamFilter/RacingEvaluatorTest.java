@@ -0,0 +1,100 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RacingEvaluatorTest {
+
+	private final TestCorpus files = new TestCorpus();
+
+	/**
+	 * Deletes the temporary files of the test
+	 */
+	@After
+	public void deleteFiles() {
+		files.delete();
+	}
+
+	/**
+	 * Takes samples of 10% and 100% of a corpus, in memory and from its cache file. To test this it was verified
+	 * if the samples have 10% of the emails (give or take one per stratum) and if the whole corpus as a sample
+	 * gives the exact FP and FN with no margin.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testSample() throws IOException {
+		String[] paths = files.generate("racing", 40, 3000, 5);
+		CompiledCorpus corpus = LogParser.parse(Functions.get_rules(paths[0]), paths[1], paths[2]);
+
+		RacingEvaluator tenth = RacingEvaluator.sample(corpus, 0.1, 2);
+		assertTrue("failure - sample should be 10%", Math.abs(tenth.getSampleSize() - 600) <= 32);
+		try (StreamingCorpus stream = StreamingCorpus.open(paths[0], paths[1], paths[2])) {
+			RacingEvaluator streamed = RacingEvaluator.sample(stream, 0.1, 2);
+			assertTrue("failure - sample should be 10%", Math.abs(streamed.getSampleSize() - 600) <= 32);
+		}
+
+		RacingEvaluator all = RacingEvaluator.sample(corpus, 1.0, 2);
+		assertEquals(6000, all.getSampleSize());
+		double[][] solutions = TestCorpus.population(10, corpus.getNumberOfRules(), 17);
+		double[][] estimates = all.estimate(solutions);
+		double[][] expected = corpus.evaluatePopulation(solutions);
+		for (int p = 0; p < solutions.length; p++) {
+			assertEquals(expected[p][0], estimates[p][0], 1e-9);
+			assertEquals(expected[p][1], estimates[p][1], 1e-9);
+			assertEquals(0.0, estimates[p][2], 0.0);
+			assertEquals(0.0, estimates[p][3], 0.0);
+		}
+	}
+
+	/**
+	 * Estimates 50 solutions on a sample of 20% of a corpus. To test this it was verified if the exact FP and FN
+	 * of almost every solution are within the margins of its estimates.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testEstimate() throws IOException {
+		String[] paths = files.generate("racing", 40, 3000, 5);
+		CompiledCorpus corpus = LogParser.parse(Functions.get_rules(paths[0]), paths[1], paths[2]);
+		RacingEvaluator racing = RacingEvaluator.sample(corpus, 0.2, 2);
+
+		double[][] solutions = TestCorpus.population(50, corpus.getNumberOfRules(), 17);
+		double[][] estimates = racing.estimate(solutions);
+		double[][] expected = corpus.evaluatePopulation(solutions);
+		int outside = 0;
+		for (int p = 0; p < solutions.length; p++) {
+			if (Math.abs(expected[p][0] - estimates[p][0]) > estimates[p][2]) {
+				outside++;
+			}
+			if (Math.abs(expected[p][1] - estimates[p][1]) > estimates[p][3]) {
+				outside++;
+			}
+		}
+		assertTrue("failure - " + outside + " of 100 estimates are outside their margin", outside <= 10);
+	}
+
+	/**
+	 * Races 4 candidates against a reference solution with {FP, FN} = {10, 10}. To test this it was verified if
+	 * only the candidate whose optimistic estimate is dominated is rejected, and if the saved evaluations are
+	 * counted.
+	 */
+	@Test
+	public final void testRace() {
+		CompiledCorpus empty = new CompiledCorpus.Builder(1, 1, 1).build();
+		RacingEvaluator racing = new RacingEvaluator(empty, 100, 100, 2);
+		double[][] estimates = { { 30, 30, 5, 5 }, { 30, 30, 25, 5 }, { 5, 40, 1, 1 }, { 12, 12, 0, 0 } };
+		boolean[] survivors = racing.race(estimates, new double[][] { { 10, 10 } });
+
+		assertFalse(survivors[0]);
+		assertTrue("failure - its FP could be better than the reference", survivors[1]);
+		assertTrue(survivors[2]);
+		assertFalse(survivors[3]);
+		assertEquals(4, racing.getCandidates());
+		assertEquals(2, racing.getFullEvaluations());
+		assertEquals(0.5, racing.getSaved(), 0.0);
+	}
+}
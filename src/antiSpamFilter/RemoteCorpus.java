@@ -0,0 +1,191 @@
+package antiSpamFilter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p> Evaluates weights with EvaluationWorker processes, each holding one shard of the corpus, so the corpus
+ * doesn't have to fit in the heap of a single JVM.
+ * <p> A population is sent to every worker at once, the workers count their shards in parallel and the counts
+ * are added up, so the results are the same as CompiledCorpus.evaluatePopulation(). Everything runs on
+ * localhost.
+ */
+public class RemoteCorpus implements Closeable {
+
+	private final int nRules;
+	private final List<Socket> sockets = new ArrayList<>();
+	private final List<DataInputStream> inputs = new ArrayList<>();
+	private final List<DataOutputStream> outputs = new ArrayList<>();
+	private final List<Process> processes = new ArrayList<>();
+
+	/**
+	 * Connects to workers that are already running on localhost
+	 *
+	 * @param ports of the workers (see EvaluationWorker.getPort())
+	 * @param nRules number of rules in rules.cf
+	 * @throws IOException if a worker can't be reached or has a corpus of other rules
+	 */
+	public RemoteCorpus(List<Integer> ports, int nRules) throws IOException {
+		this.nRules = nRules;
+		try {
+			for (int port : ports) {
+				connect(port);
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	private RemoteCorpus(int nRules) {
+		this.nRules = nRules;
+	}
+
+	/**
+	 * Compiles the cache of the corpus (see CorpusCache) and starts worker processes on this machine, each
+	 * one reading a shard of the cache
+	 *
+	 * @param rules_path of rules.cf
+	 * @param ham_path of ham.log
+	 * @param spam_path of spam.log
+	 * @param workers number of worker processes
+	 * @return the remote corpus, to be closed (stopping the workers) when it is no longer needed
+	 * @throws IOException
+	 */
+	public static RemoteCorpus start(String rules_path, String ham_path, String spam_path, int workers)
+			throws IOException {
+		ArrayList<String> rules = Functions.get_rules(rules_path);
+		File cache = CorpusCache.prepare(rules, ham_path, spam_path);
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+		RemoteCorpus remote = new RemoteCorpus(rules.size());
+		try {
+			for (int w = 0; w < workers; w++) {
+				ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+						EvaluationWorker.class.getName(), cache.getPath(), Integer.toString(w),
+						Integer.toString(workers));
+				builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+				remote.processes.add(builder.start());
+			}
+			for (Process process : remote.processes) {
+				BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+				String line = reader.readLine();
+				if (line == null || !line.startsWith("PORT ")) {
+					throw new IOException("Evaluation worker did not start: " + line);
+				}
+				remote.connect(Integer.parseInt(line.substring(5).trim()));
+			}
+		} catch (IOException e) {
+			remote.close();
+			throw e;
+		}
+		return remote;
+	}
+
+	private void connect(int port) throws IOException {
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		sockets.add(socket);
+		socket.setTcpNoDelay(true);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+		inputs.add(in);
+		outputs.add(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16)));
+		int workerRules = in.readInt();
+		if (workerRules != nRules) {
+			throw new IOException("Evaluation worker on port " + port + " has " + workerRules + " rules, not " + nRules);
+		}
+	}
+
+	/**
+	 * Evaluates the weights
+	 *
+	 * @param weights weight of each rule, in the order of rules.cf
+	 * @return {FP, FN}
+	 * @throws IOException
+	 */
+	public double[] evaluate(double[] weights) throws IOException {
+		return evaluatePopulation(new double[][] { weights }, 0)[0];
+	}
+
+	/**
+	 * Evaluates a whole population in every worker at once
+	 *
+	 * @param solutions weights of each solution, in the order of rules.cf
+	 * @param threshold maximum number of rows counted by a single task in a worker, 0 to stay sequential
+	 * @return {FP, FN} of each solution
+	 * @throws IOException
+	 */
+	public synchronized double[][] evaluatePopulation(double[][] solutions, int threshold) throws IOException {
+		int size = solutions.length;
+		if (size == 0) {
+			return new double[0][];
+		}
+		double[] matrix = CompiledCorpus.transpose(solutions, nRules);
+		for (DataOutputStream out : outputs) {
+			out.writeInt(size);
+			out.writeInt(threshold);
+			for (double weight : matrix) {
+				out.writeDouble(weight);
+			}
+			out.flush();
+		}
+
+		int[] count = new int[2 * size];
+		for (DataInputStream in : inputs) {
+			for (int i = 0; i < count.length; i++) {
+				count[i] += in.readInt();
+			}
+		}
+		return CompiledCorpus.falseValues(count, size);
+	}
+
+	/**
+	 * @return number of workers
+	 */
+	public int getNumberOfWorkers() {
+		return sockets.size();
+	}
+
+	/**
+	 * Stops the workers and closes the connections
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		for (DataOutputStream out : outputs) {
+			try {
+				out.writeInt(0);
+				out.flush();
+			} catch (IOException e) {
+				// the worker is already gone
+			}
+		}
+		for (Socket socket : sockets) {
+			socket.close();
+		}
+		for (Process process : processes) {
+			try {
+				if (!process.waitFor(5, TimeUnit.SECONDS)) {
+					process.destroy();
+				}
+			} catch (InterruptedException e) {
+				process.destroy();
+				Thread.currentThread().interrupt();
+			}
+		}
+		sockets.clear();
+		inputs.clear();
+		outputs.clear();
+		processes.clear();
+	}
+}
@@ -0,0 +1,90 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RemoteCorpusTest {
+
+	private final TestCorpus files = new TestCorpus();
+
+	/**
+	 * Deletes the temporary files of the test
+	 */
+	@After
+	public void deleteFiles() {
+		files.delete();
+	}
+
+	/**
+	 * Evaluates a population with 3 workers running on threads of this JVM, each with a shard of the cache.
+	 * To test this it was verified if the shards cover every row once and if the FP and FN are the same as
+	 * the ones of the whole corpus.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	@Test
+	public final void testWorkers() throws IOException, InterruptedException {
+		String[] paths = files.generate("remote", 40, 1500, 3);
+		ArrayList<String> rules = Functions.get_rules(paths[0]);
+		CompiledCorpus corpus = LogParser.parse(rules, paths[1], paths[2]);
+		File cache = CorpusCache.prepare(rules, paths[1], paths[2]);
+
+		ArrayList<Integer> ports = new ArrayList<>();
+		Thread[] threads = new Thread[3];
+		int rows = 0;
+		for (int w = 0; w < threads.length; w++) {
+			CompiledCorpus shard = EvaluationWorker.read_shard(cache, w, threads.length);
+			rows += shard.getNumberOfRows();
+			EvaluationWorker worker = new EvaluationWorker(shard);
+			ports.add(worker.getPort());
+			threads[w] = new Thread(worker);
+			threads[w].start();
+		}
+		try (StreamingCorpus stream = new StreamingCorpus(cache, StreamingCorpus.CHUNK_ROWS)) {
+			assertEquals(stream.getNumberOfRows(), rows);
+		}
+
+		double[][] solutions = TestCorpus.population(50, rules.size(), 11);
+		try (RemoteCorpus remote = new RemoteCorpus(ports, rules.size())) {
+			double[][] fx = remote.evaluatePopulation(solutions, 0);
+			double[][] expected = corpus.evaluatePopulation(solutions, 0);
+			for (int p = 0; p < solutions.length; p++) {
+				assertTrue("failure - solution " + p + " should be the same", Arrays.equals(expected[p], fx[p]));
+			}
+			assertTrue(Arrays.equals(corpus.evaluate(solutions[0]), remote.evaluate(solutions[0])));
+		}
+		for (Thread thread : threads) {
+			thread.join(5000);
+			assertFalse("failure - worker should stop", thread.isAlive());
+		}
+	}
+
+	/**
+	 * Starts 2 worker processes and evaluates a population with them and with an AntiSpamFilterProblem. To
+	 * test this it was verified if the FP and FN are the same as the ones of the whole corpus.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testStart() throws IOException {
+		String[] paths = files.generate("remote", 40, 1500, 3);
+		ArrayList<String> rules = Functions.get_rules(paths[0]);
+		CompiledCorpus corpus = LogParser.parse(rules, paths[1], paths[2]);
+		double[][] solutions = TestCorpus.population(20, rules.size(), 11);
+
+		try (RemoteCorpus remote = RemoteCorpus.start(paths[0], paths[1], paths[2], 2)) {
+			assertEquals(2, remote.getNumberOfWorkers());
+			double[][] fx = remote.evaluatePopulation(solutions, 0);
+			double[][] expected = corpus.evaluatePopulation(solutions, 0);
+			for (int p = 0; p < solutions.length; p++) {
+				assertTrue("failure - solution " + p + " should be the same", Arrays.equals(expected[p], fx[p]));
+			}
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package antiSpamFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * <p> Rules of rules.cf with their current weights and the weights of the automatic configuration, shown by
+ * the tables of the Interface.
+ * <p> A JTable only renders the rows that are visible, and the rules are replaced with a single event, so
+ * files with tens of thousands of rules load instantly.
+ * <p> The weights are kept as they were written (see get_weights()) and checked when they are used.
+ */
+public class RuleTableModel extends AbstractTableModel {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final int RULE = 0;
+	public static final int WEIGHT = 1;
+	public static final int OPTIMIZED_WEIGHT = 2;
+
+	private static final String[] COLUMNS = { "Rule", "Weight", "Optimized weight" };
+
+	private List<String> rules = Collections.emptyList();
+	private String[] weights = new String[0];
+	private String[] optimizedWeights = new String[0];
+	private boolean weightsEditable = false;
+
+	/**
+	 * Replaces the rules and their weights (the optimized weights start as the current ones)
+	 *
+	 * @param rules names of the rules
+	 * @param weights of the rules (missing weights are left blank)
+	 */
+	public void setRules(List<String> rules, List<String> weights) {
+		this.rules = new ArrayList<>(rules);
+		this.weights = new String[rules.size()];
+		this.optimizedWeights = new String[rules.size()];
+		for (int i = 0; i < this.weights.length; i++) {
+			this.weights[i] = i < weights.size() ? weights.get(i) : "";
+			this.optimizedWeights[i] = this.weights[i];
+		}
+		fireTableDataChanged();
+	}
+
+	/**
+	 * Shows the weights found by the automatic configuration
+	 *
+	 * @param solution weights of the rules, in the order of the rules
+	 */
+	public void setOptimizedWeights(List<Double> solution) {
+		for (int i = 0; i < optimizedWeights.length; i++) {
+			optimizedWeights[i] = i < solution.size() ? solution.get(i).toString() : "";
+		}
+		fireTableDataChanged();
+	}
+
+	/**
+	 * Blanks the optimized weights (e.g. while they are being generated)
+	 */
+	public void clearOptimizedWeights() {
+		Arrays.fill(optimizedWeights, "");
+		fireTableDataChanged();
+	}
+
+	/**
+	 * Removes every rule
+	 */
+	public void clear() {
+		setRules(Collections.<String>emptyList(), Collections.<String>emptyList());
+	}
+
+	/**
+	 * @param weightsEditable true to let the user edit the current weights (when rules.cf is valid)
+	 */
+	public void setWeightsEditable(boolean weightsEditable) {
+		this.weightsEditable = weightsEditable;
+	}
+
+	/**
+	 * @return names of the rules
+	 */
+	public ArrayList<String> getRules() {
+		return new ArrayList<>(rules);
+	}
+
+	/**
+	 * @return current weights, as written by the user
+	 */
+	public ArrayList<String> getWeights() {
+		ArrayList<String> list = new ArrayList<>(weights.length);
+		Collections.addAll(list, weights);
+		return list;
+	}
+
+	/**
+	 * @return optimized weights, as shown
+	 */
+	public ArrayList<String> getOptimizedWeights() {
+		ArrayList<String> list = new ArrayList<>(optimizedWeights.length);
+		Collections.addAll(list, optimizedWeights);
+		return list;
+	}
+
+	/**
+	 * @return names of the rules, one per line (as expected by write_weights_and_rules())
+	 */
+	public String getRulesText() {
+		return lines(rules);
+	}
+
+	/**
+	 * @return current weights, one per line
+	 */
+	public String getWeightsText() {
+		return lines(getWeights());
+	}
+
+	private static String lines(List<String> values) {
+		StringBuilder text = new StringBuilder();
+		for (String value : values) {
+			text.append(value).append('\n');
+		}
+		return text.toString();
+	}
+
+	@Override
+	public int getRowCount() {
+		return rules.size();
+	}
+
+	@Override
+	public int getColumnCount() {
+		return COLUMNS.length;
+	}
+
+	@Override
+	public String getColumnName(int column) {
+		return COLUMNS[column];
+	}
+
+	@Override
+	public Object getValueAt(int row, int column) {
+		switch (column) {
+		case RULE:
+			return rules.get(row);
+		case WEIGHT:
+			return weights[row];
+		default:
+			return optimizedWeights[row];
+		}
+	}
+
+	@Override
+	public boolean isCellEditable(int row, int column) {
+		return column == WEIGHT && weightsEditable;
+	}
+
+	@Override
+	public void setValueAt(Object value, int row, int column) {
+		if (column == WEIGHT) {
+			weights[row] = value == null ? "" : value.toString().trim();
+			fireTableCellUpdated(row, column);
+		}
+	}
+}
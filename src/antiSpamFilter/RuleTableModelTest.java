@@ -0,0 +1,64 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class RuleTableModelTest {
+
+	/**
+	 * Loads 50000 rules. To test this it was verified if every row has its rule and weights, if a single event
+	 * is fired and if the text of the rules is the one written to rules.cf.
+	 */
+	@Test
+	public final void testSetRules() {
+		ArrayList<String> rules = CorpusGenerator.generate_rules(50000);
+		ArrayList<String> weights = new ArrayList<>();
+		for (int i = 0; i < rules.size(); i++) {
+			weights.add(Double.toString(i % 10 - 5));
+		}
+		RuleTableModel model = new RuleTableModel();
+		int[] events = new int[1];
+		model.addTableModelListener(e -> events[0]++);
+
+		model.setRules(rules, weights);
+
+		assertEquals(1, events[0]);
+		assertEquals(50000, model.getRowCount());
+		assertEquals("RULE_49999", model.getValueAt(49999, RuleTableModel.RULE));
+		assertEquals("4.0", model.getValueAt(49999, RuleTableModel.WEIGHT));
+		assertEquals("4.0", model.getValueAt(49999, RuleTableModel.OPTIMIZED_WEIGHT));
+		assertEquals(weights, model.getWeights());
+		assertTrue(model.getRulesText().startsWith("RULE_0\nRULE_1\n"));
+		assertTrue(model.getRulesText().endsWith("RULE_49999\n"));
+	}
+
+	/**
+	 * Edits a weight and shows optimized weights. To test this it was verified if only the weights can be
+	 * edited, and only when allowed, and if the optimized weights don't change the current ones.
+	 */
+	@Test
+	public final void testEditWeights() {
+		RuleTableModel model = new RuleTableModel();
+		model.setRules(Arrays.asList("A", "B"), Arrays.asList("1.0", "2.0"));
+
+		assertFalse(model.isCellEditable(0, RuleTableModel.WEIGHT));
+		model.setWeightsEditable(true);
+		assertTrue(model.isCellEditable(0, RuleTableModel.WEIGHT));
+		assertFalse(model.isCellEditable(0, RuleTableModel.RULE));
+		assertFalse(model.isCellEditable(0, RuleTableModel.OPTIMIZED_WEIGHT));
+
+		model.setValueAt(" -3.5 ", 1, RuleTableModel.WEIGHT);
+		model.setOptimizedWeights(Arrays.asList(0.5, -0.5));
+
+		assertEquals("1.0\n-3.5\n", model.getWeightsText());
+		assertEquals(Arrays.asList("0.5", "-0.5"), model.getOptimizedWeights());
+		model.clearOptimizedWeights();
+		assertEquals(Arrays.asList("", ""), model.getOptimizedWeights());
+		model.clear();
+		assertEquals(0, model.getRowCount());
+	}
+}
@@ -0,0 +1,218 @@
+package antiSpamFilter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * <p> Evaluates weights against the cache file of a corpus (see CorpusCache) without reading the whole corpus
+ * to memory, so the logs can be larger than the heap.
+ * <p> The rows are read from the file in chunks of chunkRows rows, each one counted like a small
+ * CompiledCorpus. Each evaluating thread reads every chunk into the same arrays, so only one chunk per thread is
+ * in memory and evaluating allocates no chunks, and the operating system decides which pages of the file stay
+ * cached. The results are the same as CompiledCorpus.evaluatePopulation().
+ */
+public class StreamingCorpus implements Closeable {
+
+	/**
+	 * Default number of rows of a chunk (a multiple of 64, so the spam labels of a chunk are whole words)
+	 */
+	public static final int CHUNK_ROWS = 1 << 20;
+
+	private final FileChannel channel;
+	private final int chunkRows;
+	private final int nRules;
+	private final int nEmails;
+	private final int nRows;
+	private final int nHits;
+	private final long idsPosition;
+	private final long offsetsPosition;
+	private final long countsPosition;
+	private final long labelsPosition;
+
+	// Arrays the chunks are read into by evaluatePopulation(), one set per thread
+	private final ThreadLocal<Chunks> chunks = ThreadLocal.withInitial(Chunks::new);
+
+	/**
+	 * Opens the cache of ham.log and spam.log, compiling it straight to the file first if it is not up to date
+	 *
+	 * @param rules_path of rules.cf
+	 * @param ham_path of ham.log
+	 * @param spam_path of spam.log
+	 * @return the streaming corpus, to be closed when it is no longer needed
+	 * @throws IOException
+	 */
+	public static StreamingCorpus open(String rules_path, String ham_path, String spam_path) throws IOException {
+		ArrayList<String> rules = Functions.get_rules(rules_path);
+		return new StreamingCorpus(CorpusCache.prepare(rules, ham_path, spam_path), CHUNK_ROWS);
+	}
+
+	/**
+	 * @param cache file written by CorpusCache
+	 * @param chunkRows number of rows read at once, a multiple of 64
+	 * @throws IOException
+	 */
+	StreamingCorpus(File cache, int chunkRows) throws IOException {
+		if (chunkRows <= 0 || chunkRows % 64 != 0) {
+			throw new IllegalArgumentException("chunkRows must be a positive multiple of 64");
+		}
+		this.chunkRows = chunkRows;
+		this.channel = FileChannel.open(cache.toPath(), StandardOpenOption.READ);
+		CorpusCache.Header header;
+		try {
+			header = CorpusCache.readHeader(channel);
+		} catch (RuntimeException e) {
+			header = null;
+		}
+		if (header == null) {
+			channel.close();
+			throw new IOException(cache + " is not a corpus cache");
+		}
+		nRules = header.rules.size();
+		nEmails = header.nEmails;
+		nRows = header.nRows;
+		nHits = header.nHits;
+		idsPosition = header.length;
+		offsetsPosition = idsPosition + 4L * nHits;
+		countsPosition = offsetsPosition + 4L * (nRows + 1);
+		labelsPosition = countsPosition + 4L * nRows;
+	}
+
+	/**
+	 * Evaluates the weights, one chunk at a time
+	 *
+	 * @param weights weight of each rule, in the order of rules.cf
+	 * @return {FP, FN}
+	 * @throws IOException
+	 */
+	public double[] evaluate(double[] weights) throws IOException {
+		return evaluatePopulation(new double[][] { weights }, 0)[0];
+	}
+
+	/**
+	 * Evaluates a whole population, one chunk at a time. Each chunk is counted like
+	 * CompiledCorpus.evaluatePopulation(), in parallel shards if it has more than threshold rows.
+	 *
+	 * @param solutions weights of each solution, in the order of rules.cf
+	 * @param threshold maximum number of rows counted by a single task, 0 to stay sequential
+	 * @return {FP, FN} of each solution
+	 * @throws IOException
+	 */
+	public double[][] evaluatePopulation(double[][] solutions, int threshold) throws IOException {
+		int size = solutions.length;
+		double[] matrix = CompiledCorpus.transpose(solutions, nRules);
+		int[] count = new int[2 * size];
+		Chunks buffers = chunks.get();
+		for (int from = 0; from < nRows; from += chunkRows) {
+			int[] chunkCount = buffers.read(from, Math.min(from + chunkRows, nRows)).countPopulation(matrix, size,
+					threshold);
+			for (int i = 0; i < count.length; i++) {
+				count[i] += chunkCount[i];
+			}
+		}
+		return CompiledCorpus.falseValues(count, size);
+	}
+
+	/**
+	 * Reads the rows from (inclusive, a multiple of 64) to (exclusive) of the cache
+	 *
+	 * @return the rows as a corpus of their own, with new arrays
+	 * @throws IOException
+	 */
+	CompiledCorpus readChunk(int from, int to) throws IOException {
+		return read(empty(to - from), from, ByteBuffer.allocate(CorpusCache.BUFFER), false);
+	}
+
+	/**
+	 * @return a chunk of the rows, with no rule indexes yet
+	 */
+	private CompiledCorpus empty(int rows) {
+		return new CompiledCorpus(nRules, 0, new int[0], new int[rows + 1], new long[(rows + 63) >>> 6], new int[rows]);
+	}
+
+	/**
+	 * Reads the rows of the cache from (inclusive, a multiple of 64) on into the arrays of the chunk, as many
+	 * rows as it has
+	 *
+	 * @param chunk corpus whose arrays are overwritten
+	 * @param from first row
+	 * @param buffer heap buffer the file is read through
+	 * @param grow true to grow the rule indexes by half when they don't fit, false to make them the exact size
+	 * @return the chunk, or a corpus with its arrays and larger rule indexes if they didn't fit
+	 * @throws IOException
+	 */
+	private CompiledCorpus read(CompiledCorpus chunk, int from, ByteBuffer buffer, boolean grow) throws IOException {
+		int rows = chunk.getNumberOfRows();
+		int[] rowOffsets = chunk.getRowOffsets();
+		CorpusCache.readInts(channel, offsetsPosition + 4L * from, rowOffsets, rows + 1, buffer);
+		int base = rowOffsets[0];
+		for (int e = 0; e <= rows; e++) {
+			rowOffsets[e] -= base;
+		}
+
+		int[] ruleIds = chunk.getRuleIds();
+		if (ruleIds.length < rowOffsets[rows]) {
+			ruleIds = new int[grow ? Math.max(rowOffsets[rows], ruleIds.length * 3 / 2) : rowOffsets[rows]];
+			chunk = new CompiledCorpus(nRules, 0, ruleIds, rowOffsets, chunk.getSpamLabels(), chunk.getRowCounts());
+		}
+		CorpusCache.readInts(channel, idsPosition + 4L * base, ruleIds, rowOffsets[rows], buffer);
+		CorpusCache.readInts(channel, countsPosition + 4L * from, chunk.getRowCounts(), rows, buffer);
+		long[] spamLabels = chunk.getSpamLabels();
+		CorpusCache.readLongs(channel, labelsPosition + 8L * (from >>> 6), spamLabels, spamLabels.length, buffer);
+		return chunk;
+	}
+
+	/**
+	 * @return number of emails (ham and spam)
+	 */
+	public int getNumberOfEmails() {
+		return nEmails;
+	}
+
+	/**
+	 * @return number of rows in the cache
+	 */
+	public int getNumberOfRows() {
+		return nRows;
+	}
+
+	/**
+	 * @return number of rules in rules.cf
+	 */
+	public int getNumberOfRules() {
+		return nRules;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Chunks of a thread: one of chunkRows rows and one of the rows left at the end, read again for every
+	 * evaluation
+	 */
+	private final class Chunks {
+		private final ByteBuffer buffer = ByteBuffer.allocate(CorpusCache.BUFFER);
+		private CompiledCorpus full;
+		private CompiledCorpus last;
+
+		/**
+		 * Reads the rows from (inclusive, a multiple of 64) to (exclusive) of the cache into the arrays of the
+		 * chunk of their size
+		 */
+		CompiledCorpus read(int from, int to) throws IOException {
+			int rows = to - from;
+			if (rows == chunkRows) {
+				full = StreamingCorpus.this.read(full == null ? empty(rows) : full, from, buffer, true);
+				return full;
+			}
+			last = StreamingCorpus.this.read(last == null ? empty(rows) : last, from, buffer, true);
+			return last;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class StreamingCorpusTest {
+
+	private final TestCorpus files = new TestCorpus();
+
+	/**
+	 * Deletes the temporary files of the test
+	 */
+	@After
+	public void deleteFiles() {
+		files.delete();
+	}
+
+	/**
+	 * Writes a log in the format of ham.log and spam.log
+	 * @param file to write
+	 * @param result array with an array of rules in each position, like file_to_array()
+	 * @throws IOException
+	 */
+	private void writeLog(File file, ArrayList<ArrayList<String>> result) throws IOException {
+		try (PrintWriter out = new PrintWriter(file)) {
+			for (int e = 0; e < result.size(); e++) {
+				out.print("email" + e);
+				for (String rule : result.get(e)) {
+					out.print("\t" + rule);
+				}
+				out.println();
+			}
+		}
+	}
+
+	/**
+	 * Compiles random logs straight to the cache file and evaluates them in chunks of 64 rows. To test this it
+	 * was verified if every row has a count of 1 and if the FP/FN of random populations are the same as the
+	 * ones of the CompiledCorpus of the logs.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testEvaluatePopulation() throws IOException {
+		Random random = new Random(9);
+		ArrayList<String> rules = CompiledCorpusTest.randomRules(20);
+		ArrayList<ArrayList<String>> ham_result = CompiledCorpusTest.randomResult(random, 20, 1000);
+		ArrayList<ArrayList<String>> spam_result = CompiledCorpusTest.randomResult(random, 20, 700);
+		CompiledCorpus corpus = new CompiledCorpus(rules, ham_result, spam_result);
+
+		File dir = files.directory("streaming");
+		File ham = new File(dir, "ham.log");
+		File spam = new File(dir, "spam.log");
+		writeLog(ham, ham_result);
+		writeLog(spam, spam_result);
+		File cache = CorpusCache.prepare(rules, ham.getPath(), spam.getPath());
+		assertTrue("failure - cache should be written", cache.isFile());
+
+		try (StreamingCorpus stream = new StreamingCorpus(cache, 64)) {
+			assertEquals(1700, stream.getNumberOfEmails());
+			assertEquals(1700, stream.getNumberOfRows());
+			assertEquals(20, stream.getNumberOfRules());
+
+			double[][] solutions = new double[10][20];
+			for (int p = 0; p < solutions.length; p++) {
+				for (int r = 0; r < 20; r++) {
+					solutions[p][r] = random.nextDouble() * 10 - 5;
+				}
+			}
+			double[][] expected = corpus.evaluatePopulation(solutions);
+			double[][] fx = stream.evaluatePopulation(solutions, 0);
+			for (int p = 0; p < solutions.length; p++) {
+				assertArrayEquals(expected[p], fx[p], 0.0);
+			}
+			fx = stream.evaluatePopulation(solutions, 0);
+			for (int p = 0; p < solutions.length; p++) {
+				assertArrayEquals("failure - reused chunks should give the same FP/FN", expected[p], fx[p], 0.0);
+			}
+			assertArrayEquals(corpus.evaluate(solutions[0]), stream.evaluate(solutions[0]), 0.0);
+
+			CompiledCorpus chunk = stream.readChunk(0, stream.getNumberOfRows());
+			for (int e = 0; e < chunk.getNumberOfRows(); e++) {
+				assertEquals(1, chunk.getCount(e));
+			}
+		}
+
+		assertNull("failure - streamed cache should not be read as merged", CorpusCache.read(cache, rules, ham, spam));
+		assertEquals(cache.lastModified(), CorpusCache.prepare(rules, ham.getPath(), spam.getPath()).lastModified());
+	}
+}
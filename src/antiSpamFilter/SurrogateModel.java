@@ -0,0 +1,262 @@
+package antiSpamFilter;
+
+import java.util.Arrays;
+
+/**
+ * <p> Surrogate of the evaluation: a ridge regression of FP and FN on the weights, trained online with the last
+ * window solutions that were evaluated exactly, so that only the most promising offspring are evaluated exactly
+ * (see AntiSpamFilterProblem.evaluateOffspring()).
+ * <p> The offspring are ranked by the number of solutions that dominate their predicted {FP, FN} (the exact ones
+ * of the population and the predicted ones of the other offspring), ties broken by the predicted FP + FN, and the
+ * first fraction of them is evaluated exactly. The others keep their predictions, marked with the
+ * RacingEvaluator.ESTIMATED attribute, and are evaluated exactly if they survive the replacement of the population
+ * (see AntiSpamFilterNSGAII), so predictions never take the place of exact solutions.
+ * <p> The model is fitted again, by solving its normal equations, the first time it predicts after being given new
+ * solutions. It predicts nothing until it has more solutions than weights.
+ * <p> Thread safe, it can be shared by the islands of a run. Each independent run must start with reset(), so it is
+ * not trained with the solutions of the previous runs.
+ */
+public class SurrogateModel {
+
+	// Ridge penalty of each weight, per training solution
+	private static final double RIDGE = 1e-2;
+
+	private final int nRules;
+	private final double fraction;
+	private final double[][] weights;
+	private final double[][] fx;
+	private int next = 0;
+	private int size = 0;
+	private double[][] coefficients; // {FP, FN} coefficients of the intercept and of each weight, null if stale
+	private long candidates = 0;
+	private long exact = 0;
+
+	/**
+	 * @param nRules number of rules
+	 * @param fraction of the offspring evaluated exactly, in ]0, 1]
+	 * @param window number of evaluated solutions the model is trained with
+	 */
+	public SurrogateModel(int nRules, double fraction, int window) {
+		if (fraction <= 0 || fraction > 1) {
+			throw new IllegalArgumentException("the fraction evaluated exactly must be in ]0, 1]");
+		}
+		if (window < 1) {
+			throw new IllegalArgumentException("the window must have at least 1 solution");
+		}
+		this.nRules = nRules;
+		this.fraction = fraction;
+		this.weights = new double[window][];
+		this.fx = new double[window][];
+	}
+
+	/**
+	 * Trains the model with an exactly evaluated solution, replacing the oldest one if the window is full
+	 *
+	 * @param solution weights of the solution, in the order of rules.cf (copied)
+	 * @param objectives exact {FP, FN} of the solution
+	 */
+	public synchronized void add(double[] solution, double[] objectives) {
+		weights[next] = solution.clone();
+		fx[next] = new double[] { objectives[0], objectives[1] };
+		next = (next + 1) % weights.length;
+		size = Math.min(size + 1, weights.length);
+		coefficients = null;
+	}
+
+	/**
+	 * Forgets the solutions the model was trained with, to start a new run (the counters are kept)
+	 */
+	public synchronized void reset() {
+		Arrays.fill(weights, null);
+		Arrays.fill(fx, null);
+		next = 0;
+		size = 0;
+		coefficients = null;
+	}
+
+	/**
+	 * @return true if the model has enough solutions to predict
+	 */
+	public synchronized boolean isTrained() {
+		return size > Math.min(nRules, weights.length - 1);
+	}
+
+	/**
+	 * Predicts {FP, FN} of the solutions
+	 *
+	 * @param solutions weights of each solution, in the order of rules.cf
+	 * @return predicted {FP, FN} of each solution (never negative)
+	 */
+	public synchronized double[][] predict(double[][] solutions) {
+		if (coefficients == null) {
+			coefficients = fit();
+		}
+		double[][] predictions = new double[solutions.length][];
+		for (int p = 0; p < solutions.length; p++) {
+			double fp = coefficients[0][0];
+			double fn = coefficients[1][0];
+			for (int r = 0; r < nRules; r++) {
+				fp += coefficients[0][r + 1] * solutions[p][r];
+				fn += coefficients[1][r + 1] * solutions[p][r];
+			}
+			predictions[p] = new double[] { Math.max(fp, 0), Math.max(fn, 0) };
+		}
+		return predictions;
+	}
+
+	/**
+	 * Solves the normal equations (X'X + ridge) c = X'y of FP and FN, X having a column of ones for the intercept
+	 *
+	 * @return {FP, FN} coefficients
+	 */
+	private double[][] fit() {
+		int d = nRules + 1;
+		double[][] a = new double[d][d];
+		double[][] b = new double[2][d];
+		double[] x = new double[d];
+		x[0] = 1.0;
+		for (int s = 0; s < size; s++) {
+			System.arraycopy(weights[s], 0, x, 1, nRules);
+			for (int i = 0; i < d; i++) {
+				double xi = x[i];
+				if (xi == 0) {
+					continue;
+				}
+				for (int j = 0; j <= i; j++) {
+					a[i][j] += xi * x[j];
+				}
+				b[0][i] += xi * fx[s][0];
+				b[1][i] += xi * fx[s][1];
+			}
+		}
+		a[0][0] += 1e-9;
+		for (int i = 1; i < d; i++) {
+			a[i][i] += RIDGE * size;
+		}
+		cholesky(a);
+		return new double[][] { solve(a, b[0]), solve(a, b[1]) };
+	}
+
+	/**
+	 * Replaces the lower triangle of a symmetric positive definite matrix (only its lower triangle is read) by
+	 * its Cholesky factor L, a = L L'
+	 */
+	static void cholesky(double[][] a) {
+		int d = a.length;
+		for (int j = 0; j < d; j++) {
+			double diagonal = a[j][j];
+			for (int k = 0; k < j; k++) {
+				diagonal -= a[j][k] * a[j][k];
+			}
+			a[j][j] = Math.sqrt(Math.max(diagonal, 1e-12));
+			for (int i = j + 1; i < d; i++) {
+				double sum = a[i][j];
+				for (int k = 0; k < j; k++) {
+					sum -= a[i][k] * a[j][k];
+				}
+				a[i][j] = sum / a[j][j];
+			}
+		}
+	}
+
+	/**
+	 * Solves L L' c = b with the Cholesky factor L of cholesky()
+	 *
+	 * @return c
+	 */
+	static double[] solve(double[][] l, double[] b) {
+		int d = b.length;
+		double[] y = new double[d];
+		for (int i = 0; i < d; i++) {
+			double sum = b[i];
+			for (int k = 0; k < i; k++) {
+				sum -= l[i][k] * y[k];
+			}
+			y[i] = sum / l[i][i];
+		}
+		double[] c = new double[d];
+		for (int i = d - 1; i >= 0; i--) {
+			double sum = y[i];
+			for (int k = i + 1; k < d; k++) {
+				sum -= l[k][i] * c[k];
+			}
+			c[i] = sum / l[i][i];
+		}
+		return c;
+	}
+
+	/**
+	 * Chooses the offspring that are evaluated exactly
+	 *
+	 * @param predictions predicted {FP, FN} of the offspring
+	 * @param reference exact {FP, FN} of the population
+	 * @return true for the most promising fraction of the offspring (at least one)
+	 */
+	public boolean[] select(double[][] predictions, double[][] reference) {
+		int n = predictions.length;
+		int[] dominated = new int[n];
+		for (int p = 0; p < n; p++) {
+			for (double[] r : reference) {
+				if (dominates(r, predictions[p])) {
+					dominated[p]++;
+				}
+			}
+			for (int q = 0; q < n; q++) {
+				if (q != p && dominates(predictions[q], predictions[p])) {
+					dominated[p]++;
+				}
+			}
+		}
+		Integer[] order = new Integer[n];
+		for (int p = 0; p < n; p++) {
+			order[p] = p;
+		}
+		Arrays.sort(order, (p, q) -> dominated[p] != dominated[q] ? Integer.compare(dominated[p], dominated[q])
+				: Double.compare(predictions[p][0] + predictions[p][1], predictions[q][0] + predictions[q][1]));
+
+		int keep = Math.min(n, Math.max(1, (int) Math.ceil(fraction * n)));
+		boolean[] selected = new boolean[n];
+		for (int i = 0; i < keep; i++) {
+			selected[order[i]] = true;
+		}
+		synchronized (this) {
+			candidates += n;
+			exact += keep;
+		}
+		return selected;
+	}
+
+	private static boolean dominates(double[] a, double[] b) {
+		return a[0] <= b[0] && a[1] <= b[1] && (a[0] < b[0] || a[1] < b[1]);
+	}
+
+	/**
+	 * Counts solutions that were predicted and then had to be evaluated exactly (see AntiSpamFilterNSGAII)
+	 *
+	 * @param evaluated number of solutions
+	 */
+	public synchronized void countExact(int evaluated) {
+		exact += evaluated;
+	}
+
+	/**
+	 * @return number of offspring screened
+	 */
+	public synchronized long getCandidates() {
+		return candidates;
+	}
+
+	/**
+	 * @return number of screened offspring evaluated exactly
+	 */
+	public synchronized long getExactEvaluations() {
+		return exact;
+	}
+
+	/**
+	 * @return fraction of the exact evaluations of the screened offspring that were saved
+	 */
+	public synchronized double getSaved() {
+		return candidates == 0 ? 0.0 : Math.max(candidates - exact, 0) / (double) candidates;
+	}
+}
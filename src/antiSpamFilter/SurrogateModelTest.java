@@ -0,0 +1,69 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SurrogateModelTest {
+
+	/**
+	 * Trains a surrogate of 3 rules with a window of 20 on FP = 20 + 2 w0 - w1 and FN = 10 - w2. To test this it
+	 * was verified if it only predicts with more solutions than rules and if its predictions are close to the
+	 * exact values, and never negative, and if it stops predicting when it is reset for a new run.
+	 */
+	@Test
+	public final void testPredict() {
+		SurrogateModel surrogate = new SurrogateModel(3, 0.5, 20);
+		Random random = new Random(5);
+		for (int s = 0; s < 50; s++) {
+			assertEquals(s > 3, surrogate.isTrained());
+			double[] w = { random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5 };
+			surrogate.add(w, new double[] { 20 + 2 * w[0] - w[1], 10 - w[2] });
+		}
+
+		double[][] predictions = surrogate.predict(new double[][] { { 1, 2, 3 }, { -4, 4, 0 }, { 0, 0, 30 } });
+		assertEquals(20.0, predictions[0][0], 0.2);
+		assertEquals(7.0, predictions[0][1], 0.2);
+		assertEquals(8.0, predictions[1][0], 0.2);
+		assertEquals(10.0, predictions[1][1], 0.2);
+		assertEquals(0.0, predictions[2][1], 0.0);
+
+		surrogate.reset();
+		assertFalse("failure - a new run should train it again", surrogate.isTrained());
+	}
+
+	/**
+	 * Solves a system of 3 equations with cholesky() and solve(). To test this it was verified if the solution
+	 * is the expected one.
+	 */
+	@Test
+	public final void testSolve() {
+		double[][] a = { { 4, 0, 0 }, { 2, 10, 0 }, { -2, 2, 9 } };
+		SurrogateModel.cholesky(a);
+		double[] c = SurrogateModel.solve(a, new double[] { 6, 24, 11 });
+		assertEquals(1.0, c[0], 1e-9);
+		assertEquals(2.0, c[1], 1e-9);
+		assertEquals(1.0, c[2], 1e-9);
+	}
+
+	/**
+	 * Selects half of 4 offspring with a population that has {FP, FN} = {10, 10}. To test this it was verified
+	 * if the 2 offspring that are not dominated are selected and if the saved evaluations are counted.
+	 */
+	@Test
+	public final void testSelect() {
+		SurrogateModel surrogate = new SurrogateModel(1, 0.5, 10);
+		double[][] predictions = { { 20, 20 }, { 5, 30 }, { 12, 11 }, { 30, 2 } };
+		boolean[] selected = surrogate.select(predictions, new double[][] { { 10, 10 } });
+
+		assertFalse(selected[0]);
+		assertTrue(selected[1]);
+		assertFalse(selected[2]);
+		assertTrue(selected[3]);
+		assertEquals(4, surrogate.getCandidates());
+		assertEquals(2, surrogate.getExactEvaluations());
+		assertEquals(0.5, surrogate.getSaved(), 0.0);
+	}
+}
@@ -0,0 +1,138 @@
+package antiSpamFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.uma.jmetal.solution.DoubleSolution;
+
+/**
+ * <p> When a NSGA-II run stops: after the maximum evaluations, after stagnationGenerations generations in a row
+ * in which the hypervolume of the non-dominated solutions of the population didn't improve by more than
+ * tolerance (relative), or when the time limit runs out. Stagnation and the time limit are off when 0.
+ * <p> The hypervolume is measured in the (FP, FN) plane up to the worst FP and FN of the initial population
+ * (plus 1), so it only compares generations of the same run. Solutions whose FP/FN are estimates (see
+ * RacingEvaluator and SurrogateModel) are left out.
+ * <p> Each run needs its own Termination.
+ */
+public class Termination {
+
+	private final int stagnationGenerations;
+	private final double tolerance;
+	private final long timeLimitMillis;
+
+	private long startTime;
+	private double[] reference;
+	private double bestHypervolume;
+	private int stagnantGenerations;
+
+	/**
+	 * @param stagnationGenerations generations without improvement before stopping, 0 to never stop for this
+	 * @param tolerance relative improvement of the hypervolume that counts as an improvement
+	 * @param timeLimitMillis wall-clock time of the run in milliseconds, 0 for no limit
+	 */
+	public Termination(int stagnationGenerations, double tolerance, long timeLimitMillis) {
+		this.stagnationGenerations = stagnationGenerations;
+		this.tolerance = tolerance;
+		this.timeLimitMillis = timeLimitMillis;
+	}
+
+	/**
+	 * Starts a run
+	 *
+	 * @param population initial population, already evaluated
+	 */
+	public void start(List<DoubleSolution> population) {
+		start(objectives(population));
+	}
+
+	void start(double[][] objectives) {
+		startTime = System.currentTimeMillis();
+		reference = new double[] { 1.0, 1.0 };
+		for (double[] fx : objectives) {
+			reference[0] = Math.max(reference[0], fx[0] + 1);
+			reference[1] = Math.max(reference[1], fx[1] + 1);
+		}
+		bestHypervolume = hypervolume(objectives, reference);
+		stagnantGenerations = 0;
+	}
+
+	/**
+	 * Measures the population of a new generation
+	 *
+	 * @param population of the generation
+	 */
+	public void update(List<DoubleSolution> population) {
+		update(objectives(population));
+	}
+
+	void update(double[][] objectives) {
+		double hypervolume = hypervolume(objectives, reference);
+		if (hypervolume > bestHypervolume * (1 + tolerance) || (bestHypervolume == 0 && hypervolume > 0)) {
+			stagnantGenerations = 0;
+		} else {
+			stagnantGenerations++;
+		}
+		bestHypervolume = Math.max(bestHypervolume, hypervolume);
+	}
+
+	/**
+	 * @param evaluations done by the run
+	 * @param maxEvaluations of the run
+	 * @return why the run must stop, null if it goes on
+	 */
+	public String reason(int evaluations, int maxEvaluations) {
+		if (evaluations >= maxEvaluations) {
+			return "maximum of " + maxEvaluations + " evaluations reached";
+		}
+		if (stagnationGenerations > 0 && stagnantGenerations >= stagnationGenerations) {
+			return "hypervolume did not improve in " + stagnationGenerations + " generations (" + evaluations
+					+ " evaluations)";
+		}
+		if (timeLimitMillis > 0 && System.currentTimeMillis() - startTime >= timeLimitMillis) {
+			return "time limit of " + timeLimitMillis / 1000.0 + " s reached (" + evaluations + " evaluations)";
+		}
+		return null;
+	}
+
+	/**
+	 * @return best hypervolume of the run
+	 */
+	public double getHypervolume() {
+		return bestHypervolume;
+	}
+
+	/**
+	 * Hypervolume (area) dominated by the points up to the reference point, when minimizing both objectives
+	 *
+	 * @param objectives {FP, FN} of each solution
+	 * @param reference {FP, FN} of the reference point
+	 * @return the hypervolume
+	 */
+	static double hypervolume(double[][] objectives, double[] reference) {
+		double[][] points = objectives.clone();
+		Arrays.sort(points, (a, b) -> a[0] != b[0] ? Double.compare(a[0], b[0]) : Double.compare(a[1], b[1]));
+		double hypervolume = 0.0;
+		double lowest = reference[1]; // lowest FN of the points with lower FP
+		for (double[] point : points) {
+			if (point[0] < reference[0] && point[1] < lowest) {
+				hypervolume += (reference[0] - point[0]) * (lowest - point[1]);
+				lowest = point[1];
+			}
+		}
+		return hypervolume;
+	}
+
+	/**
+	 * @return {FP, FN} of the solutions of the population with exact FP/FN (estimates are not measured)
+	 */
+	private static double[][] objectives(List<DoubleSolution> population) {
+		List<double[]> objectives = new ArrayList<>(population.size());
+		for (DoubleSolution solution : population) {
+			if (!RacingEvaluator.isEstimated(solution)) {
+				objectives.add(new double[] { solution.getObjective(0), solution.getObjective(1) });
+			}
+		}
+		return objectives.toArray(new double[0][]);
+	}
+}
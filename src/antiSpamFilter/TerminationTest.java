@@ -0,0 +1,57 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TerminationTest {
+
+	/**
+	 * Measures fronts with known areas. To test this it was verified if dominated points and points beyond
+	 * the reference point add nothing.
+	 */
+	@Test
+	public final void testHypervolume() {
+		double[] reference = { 10, 10 };
+		assertEquals(0.0, Termination.hypervolume(new double[0][], reference), 0.0);
+		assertEquals(32.0, Termination.hypervolume(new double[][] { { 2, 6 } }, reference), 0.0);
+		// (2,6) and (6,2): 8*4 + 4*8 - 4*4
+		assertEquals(48.0, Termination.hypervolume(new double[][] { { 6, 2 }, { 2, 6 }, { 7, 7 }, { 12, 0 } },
+				reference), 0.0);
+	}
+
+	/**
+	 * Updates a run with the same front again and again. To test this it was verified if it stops after the
+	 * given generations without improvement, and only then, and if the maximum evaluations always stop it.
+	 */
+	@Test
+	public final void testStagnation() {
+		Termination termination = new Termination(3, 0.01, 0);
+		termination.start(new double[][] { { 50, 50 }, { 90, 90 } });
+		assertNull(termination.reason(100, 1000));
+
+		termination.update(new double[][] { { 20, 20 } }); // improves
+		termination.update(new double[][] { { 20, 20 } });
+		termination.update(new double[][] { { 20, 19.999 } }); // less than 1%
+		assertNull(termination.reason(300, 1000));
+		termination.update(new double[][] { { 20, 20 } });
+		assertTrue(termination.reason(400, 1000).startsWith("hypervolume did not improve"));
+
+		Termination budget = new Termination(0, 0.01, 0);
+		budget.start(new double[][] { { 50, 50 } });
+		assertNull(budget.reason(999, 1000));
+		assertEquals("maximum of 1000 evaluations reached", budget.reason(1000, 1000));
+	}
+
+	/**
+	 * Starts a run with a time limit of 1 ms. To test this it was verified if it stops once the time is over.
+	 * @throws InterruptedException
+	 */
+	@Test
+	public final void testTimeLimit() throws InterruptedException {
+		Termination termination = new Termination(0, 0.01, 1);
+		termination.start(new double[][] { { 50, 50 } });
+		Thread.sleep(5);
+		assertTrue(termination.reason(100, 1000).startsWith("time limit"));
+	}
+}
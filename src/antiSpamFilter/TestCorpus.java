@@ -0,0 +1,89 @@
+package antiSpamFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * <p> Temporary files of the tests: generated corpora and random populations.
+ * <p> Each test class keeps a TestCorpus and calls delete() in an @After method, so the directories it creates
+ * are not left behind.
+ */
+class TestCorpus {
+
+	private final ArrayList<File> directories = new ArrayList<>();
+
+	/**
+	 * @param prefix of the name of the directory
+	 * @return a new empty temporary directory, deleted by delete()
+	 * @throws IOException
+	 */
+	File directory(String prefix) throws IOException {
+		File dir = Files.createTempDirectory(prefix).toFile();
+		directories.add(dir);
+		return dir;
+	}
+
+	/**
+	 * Writes a generated corpus to a new temporary directory
+	 *
+	 * @param prefix of the name of the directory
+	 * @param nRules number of rules
+	 * @param emails number of emails of each log
+	 * @param seed of the CorpusGenerator
+	 * @return {rules.cf, ham.log, spam.log}
+	 * @throws IOException
+	 */
+	String[] generate(String prefix, int nRules, int emails, long seed) throws IOException {
+		File dir = directory(prefix);
+		String[] paths = { new File(dir, "rules.cf").getPath(), new File(dir, "ham.log").getPath(),
+				new File(dir, "spam.log").getPath() };
+		ArrayList<String> rules = CorpusGenerator.generate_rules(nRules);
+		CorpusGenerator.write_rules(paths[0], rules);
+		CorpusGenerator generator = new CorpusGenerator(rules, seed);
+		generator.write(paths[1], emails, false);
+		generator.write(paths[2], emails, true);
+		return paths;
+	}
+
+	/**
+	 * @param size number of solutions
+	 * @param nRules number of rules
+	 * @param seed of the weights
+	 * @return solutions with random weights in [-5, 5[
+	 */
+	static double[][] population(int size, int nRules, long seed) {
+		Random random = new Random(seed);
+		double[][] solutions = new double[size][nRules];
+		for (double[] solution : solutions) {
+			for (int r = 0; r < nRules; r++) {
+				solution[r] = random.nextDouble() * 10 - 5;
+			}
+		}
+		return solutions;
+	}
+
+	/**
+	 * Deletes the directories created by directory() and generate(), with everything in them
+	 */
+	void delete() {
+		for (File dir : directories) {
+			delete(dir);
+		}
+		directories.clear();
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		if (!file.delete() && file.exists()) {
+			System.out.println("WARNING: " + file + " could not be deleted");
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package antiSpamFilter;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * <p> Initial population made from weights that are already known to be good: the weights of rules.cf and the
+ * solutions of a previous Pareto set (referenceFronts/AntiSpamFilterProblem.NSGAII.rs). The known weights are
+ * used as they are, and the rest of the population are perturbations of them (Gaussian noise with standard
+ * deviation perturbation on every weight), so a new optimization starts near the previous one.
+ */
+public class WarmStart {
+
+	private final List<double[]> seeds;
+	private final double perturbation;
+
+	/**
+	 * @param seeds known weights, each with a weight per rule
+	 * @param perturbation standard deviation of the noise added to the seeds to fill the population
+	 */
+	public WarmStart(List<double[]> seeds, double perturbation) {
+		if (seeds.isEmpty()) {
+			throw new IllegalArgumentException("There must be at least one seed");
+		}
+		this.seeds = seeds;
+		this.perturbation = perturbation;
+	}
+
+	/**
+	 * Reads the weights of rules.cf and then the solutions of a Pareto set, skipping the ones that don't have
+	 * nRules valid weights
+	 *
+	 * @param rules_path of rules.cf
+	 * @param rs_path of the Pareto set (one solution per line, weights separated by spaces), ignored if missing
+	 * @param nRules number of rules
+	 * @param perturbation standard deviation of the noise added to the seeds to fill the population
+	 * @return the warm start, null if there are no valid weights (the initial population is then random)
+	 * @throws FileNotFoundException if rules.cf doesn't exist
+	 */
+	public static WarmStart read(String rules_path, String rs_path, int nRules, double perturbation)
+			throws FileNotFoundException {
+		List<double[]> seeds = new ArrayList<>();
+		double[] current = parse(Functions.get_weights(rules_path).toArray(new String[0]), nRules);
+		if (current != null) {
+			seeds.add(current);
+		} else {
+			System.out.println("WARNING: the weights of " + rules_path + " are not valid, they are not used");
+		}
+
+		if (rs_path != null && new File(rs_path).isFile()) {
+			int skipped = 0;
+			try (Scanner sc = new Scanner(new File(rs_path))) {
+				while (sc.hasNextLine()) {
+					String line = sc.nextLine().trim();
+					if (line.isEmpty()) {
+						continue;
+					}
+					double[] solution = parse(line.split("\\s+"), nRules);
+					if (solution != null) {
+						seeds.add(solution);
+					} else {
+						skipped++;
+					}
+				}
+			}
+			if (skipped > 0) {
+				System.out.println("WARNING: " + skipped + " solutions of " + rs_path + " don't match the rules");
+			}
+		}
+		if (seeds.isEmpty()) {
+			System.out.println("WARNING: there are no valid weights to start from, the initial population is random");
+			return null;
+		}
+		return new WarmStart(seeds, perturbation);
+	}
+
+	/**
+	 * @return the weights, null if there are not nRules of them or one is not a number
+	 */
+	private static double[] parse(String[] values, int nRules) {
+		if (values.length != nRules) {
+			return null;
+		}
+		double[] weights = new double[nRules];
+		try {
+			for (int i = 0; i < nRules; i++) {
+				weights[i] = Double.parseDouble(values[i]);
+			}
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		return weights;
+	}
+
+	/**
+	 * Creates the weights of an initial population: the seeds (as many as fit) and then perturbations of them,
+	 * taking each seed in turn. Every weight is kept within [lower, upper].
+	 *
+	 * @param size of the population
+	 * @param lower bound of the weights
+	 * @param upper bound of the weights
+	 * @param random numbers of the perturbations
+	 * @return weights of each solution
+	 */
+	public double[][] population(int size, double lower, double upper, Random random) {
+		double[][] population = new double[size][];
+		for (int p = 0; p < size; p++) {
+			double[] seed = seeds.get(p < seeds.size() ? p : (p - seeds.size()) % seeds.size());
+			double[] weights = seed.clone();
+			for (int i = 0; i < weights.length; i++) {
+				if (p >= seeds.size()) {
+					weights[i] += perturbation * random.nextGaussian();
+				}
+				weights[i] = Math.min(Math.max(weights[i], lower), upper);
+			}
+			population[p] = weights;
+		}
+		return population;
+	}
+
+	/**
+	 * @return number of seeds
+	 */
+	public int getNumberOfSeeds() {
+		return seeds.size();
+	}
+}
@@ -0,0 +1,101 @@
+package antiSpamFilter;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class WarmStartTest {
+
+	private final TestCorpus files = new TestCorpus();
+
+	/**
+	 * Deletes the temporary files of the test
+	 */
+	@After
+	public void deleteFiles() {
+		files.delete();
+	}
+
+	/**
+	 * Writes a rules.cf of 3 rules and a Pareto set with 2 valid solutions and 2 invalid ones, and reads them.
+	 * To test this it was verified if the seeds are the weights of rules.cf and then the valid solutions, in
+	 * order.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testRead() throws IOException {
+		File dir = files.directory("warmstart");
+		File rules = new File(dir, "rules.cf");
+		File rs = new File(dir, "AntiSpamFilterProblem.NSGAII.rs");
+		try (PrintWriter out = new PrintWriter(rules)) {
+			out.println("A 1.0");
+			out.println("B -2.5");
+			out.println("C 3.0");
+		}
+		try (PrintWriter out = new PrintWriter(rs)) {
+			out.println("0.5 0.5 0.5");
+			out.println("1.0 x 1.0");
+			out.println("1.0 1.0");
+			out.println("-1.0 2.0 -3.0 ");
+		}
+
+		WarmStart warmStart = WarmStart.read(rules.getPath(), rs.getPath(), 3, 0.0);
+		assertEquals(3, warmStart.getNumberOfSeeds());
+		double[][] population = warmStart.population(3, -5, 5, new Random(1));
+		assertTrue(Arrays.equals(new double[] { 1.0, -2.5, 3.0 }, population[0]));
+		assertTrue(Arrays.equals(new double[] { 0.5, 0.5, 0.5 }, population[1]));
+		assertTrue(Arrays.equals(new double[] { -1.0, 2.0, -3.0 }, population[2]));
+
+		WarmStart noPareto = WarmStart.read(rules.getPath(), new File(dir, "missing.rs").getPath(), 3, 0.0);
+		assertEquals(1, noPareto.getNumberOfSeeds());
+	}
+
+	/**
+	 * Reads a rules.cf whose weights are not valid, with no Pareto set. To test this it was verified if there is
+	 * no warm start, so the initial population is random instead of all zero weights.
+	 * @throws IOException
+	 */
+	@Test
+	public final void testReadNoSeeds() throws IOException {
+		File dir = files.directory("warmstart");
+		File rules = new File(dir, "rules.cf");
+		try (PrintWriter out = new PrintWriter(rules)) {
+			out.println("A 1.0");
+			out.println("B x");
+		}
+		assertNull("failure - there should be no warm start",
+				WarmStart.read(rules.getPath(), new File(dir, "missing.rs").getPath(), 2, 0.0));
+	}
+
+	/**
+	 * Creates a population of 10 from 2 seeds. To test this it was verified if the first solutions are the seeds,
+	 * if the rest are perturbations of the seeds taken in turn and if every weight is within the bounds.
+	 */
+	@Test
+	public final void testPopulation() {
+		double[] first = { 0.0, 4.9 };
+		double[] second = { -4.9, 0.0 };
+		WarmStart warmStart = new WarmStart(Arrays.asList(first, second), 1.0);
+		double[][] population = warmStart.population(10, -5, 5, new Random(3));
+
+		assertEquals(10, population.length);
+		assertTrue(Arrays.equals(first, population[0]));
+		assertTrue(Arrays.equals(second, population[1]));
+		assertNotSame(first, population[0]);
+		for (int p = 2; p < population.length; p++) {
+			double[] seed = p % 2 == 0 ? first : second;
+			assertFalse("failure - solution " + p + " should be perturbed", Arrays.equals(seed, population[p]));
+			for (int i = 0; i < seed.length; i++) {
+				assertTrue(population[p][i] >= -5 && population[p][i] <= 5);
+				assertTrue(Math.abs(population[p][i] - seed[i]) < 6);
+			}
+		}
+	}
+}